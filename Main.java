@@ -1,12 +1,15 @@
 import data.LinearRegression;
+import data.LogisticRegression;
 import data.AverageProteinLevelsByAgeGroup;
 import data.DataVisualization;
 import data.DescriptiveStatistics;
 import data.MissingValuesCount;
 import data.CorrelationCalculator;
+import data.CorrelationMatrix;
+import data.CorrelationPair;
+import data.DataTable;
 
 import java.io.IOException;
-import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 
@@ -14,7 +17,14 @@ public class Main {
     public static void main(String[] args) {
         Scanner scanner = new Scanner(System.in);
         String filePath = "BRCA.csv";
-        List<String[]> data = DataVisualization.readCSV(filePath);
+        DataTable data;
+        try {
+            data = DataTable.load(filePath);
+        } catch (IOException e) {
+            System.out.println("Error loading " + filePath + ": " + e.getMessage());
+            scanner.close();
+            return;
+        }
 
         while (true) {
             clearConsole();
@@ -25,6 +35,10 @@ public class Main {
             System.out.println("4. Count Missing Values");
             System.out.println("5. Calculate Correlation Matrix");
             System.out.println("6. Run Linear Regression");
+            System.out.println("7. Run Linear Regression (Closed-Form Ridge)");
+            System.out.println("8. Tune Linear Regression (Cross-Validated Grid Search)");
+            System.out.println("9. Calculate Rank Correlations (Spearman and Kendall)");
+            System.out.println("10. Run Logistic Regression (Patient_Status)");
             System.out.println("0. Exit");
             System.out.print("Enter your choice: ");
             int choice = scanner.nextInt();
@@ -34,19 +48,31 @@ public class Main {
                     visualizeDataMenu(data);
                     break;
                 case 2:
-                    AverageProteinLevelsByAgeGroup.calculateAverageProteinLevels(filePath);
+                    AverageProteinLevelsByAgeGroup.calculateAverageProteinLevels(data);
                     break;
                 case 3:
-                    DescriptiveStatistics.main(args);
+                    DescriptiveStatistics.run(data);
                     break;
                 case 4:
-                    countMissingValues(filePath);
+                    countMissingValues(data);
                     break;
                 case 5:
-                    calculateCorrelations(filePath);
+                    calculateCorrelations(data);
                     break;
                 case 6:
-                    LinearRegression.run(filePath);
+                    LinearRegression.run(data);
+                    break;
+                case 7:
+                    LinearRegression.run(data, LinearRegression.Solver.NORMAL_EQUATIONS);
+                    break;
+                case 8:
+                    LinearRegression.tune(data);
+                    break;
+                case 9:
+                    calculateRankCorrelations(data);
+                    break;
+                case 10:
+                    LogisticRegression.run(data);
                     break;
                 case 0:
                     System.out.println("Exiting...");
@@ -62,7 +88,7 @@ public class Main {
         }
     }
 
-    private static void visualizeDataMenu(List<String[]> data) {
+    private static void visualizeDataMenu(DataTable data) {
         Scanner scanner = new Scanner(System.in);
         while (true) {
             clearConsole();
@@ -104,9 +130,9 @@ public class Main {
         }
     }
 
-    private static void countMissingValues(String filePath) {
+    private static void countMissingValues(DataTable data) {
         MissingValuesCount missingValuesCounter = new MissingValuesCount();
-        Map<Integer, Integer> missingValueCounts = missingValuesCounter.countMissingValues(filePath);
+        Map<Integer, Integer> missingValueCounts = missingValuesCounter.countMissingValues(data);
 
         // Print the count of missing values in each column
         for (Map.Entry<Integer, Integer> entry : missingValueCounts.entrySet()) {
@@ -118,34 +144,53 @@ public class Main {
         new Scanner(System.in).nextLine(); // Wait for user to press Enter before continuing
     }
 
-    private static void calculateCorrelations(String filePath) {
-        try {
-            Map<String, Map<String, Double>> correlationMap = CorrelationCalculator.calculateCorrelations(filePath);
-            System.out.println("Pearson Correlation Matrix:");
-            for (Map.Entry<String, Map<String, Double>> entry : correlationMap.entrySet()) {
-                String heading1 = entry.getKey();
-                Map<String, Double> correlations = entry.getValue();
-                for (Map.Entry<String, Double> correlationEntry : correlations.entrySet()) {
-                    String heading2 = correlationEntry.getKey();
-                    double correlation = correlationEntry.getValue();
-                    System.out.println(heading1 + " <-> " + heading2 + ": " + correlation);
+    private static void calculateCorrelations(DataTable data) {
+        CorrelationMatrix correlations = CorrelationCalculator.calculateCorrelations(data);
+        System.out.println("Pearson Correlation Matrix:");
+        for (int i = 0; i < correlations.size(); i++) {
+            for (int j = 0; j < correlations.size(); j++) {
+                if (i != j) {
+                    System.out.println(correlations.getHeader(i) + " <-> " + correlations.getHeader(j) + ": "
+                            + correlations.get(i, j));
                 }
             }
+        }
 
-            // Find and print the best pair of column headings
-            Map.Entry<String, String> bestPair = CorrelationCalculator.findBestPair(correlationMap);
-            if (bestPair != null) {
-                System.out.println("\nBest Pair of Column Headings:");
-                System.out.println(bestPair.getKey() + " <-> " + bestPair.getValue() + ": "
-                        + correlationMap.get(bestPair.getKey()).get(bestPair.getValue()));
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+        // Find and print the best pair of column headings
+        Map.Entry<String, String> bestPair = CorrelationCalculator.findBestPair(correlations);
+        if (bestPair != null) {
+            System.out.println("\nBest Pair of Column Headings:");
+            System.out.println(bestPair.getKey() + " <-> " + bestPair.getValue() + ": "
+                    + correlations.get(bestPair.getKey(), bestPair.getValue()));
+        }
+
+        System.out.println("\nStrongest Correlations:");
+        for (CorrelationPair pair : CorrelationCalculator.topPairs(data, 5)) {
+            System.out.println(pair);
         }
         System.out.println("\nPress Enter to continue...");
         new Scanner(System.in).nextLine(); // Wait for user to press Enter before continuing
     }
 
+    private static void calculateRankCorrelations(DataTable data) {
+        CorrelationMatrix spearman = CorrelationCalculator.spearmanCorrelations(data);
+        CorrelationMatrix kendall = CorrelationCalculator.kendallCorrelations(data);
+        System.out.println("Rank Correlations (Spearman, Kendall):");
+        for (int i = 0; i < spearman.size(); i++) {
+            for (int j = i + 1; j < spearman.size(); j++) {
+                System.out.println(spearman.getHeader(i) + " <-> " + spearman.getHeader(j) + ": "
+                        + spearman.get(i, j) + ", " + kendall.get(i, j));
+            }
+        }
+
+        Map.Entry<String, String> bestPair = CorrelationCalculator.findBestPair(spearman);
+        if (bestPair != null) {
+            System.out.println("\nBest Pair of Column Headings (Spearman):");
+            System.out.println(bestPair.getKey() + " <-> " + bestPair.getValue() + ": "
+                    + spearman.get(bestPair.getKey(), bestPair.getValue()));
+        }
+    }
+
     private static void clearConsole() {
         try {
             final String os = System.getProperty("os.name");
@@ -0,0 +1,133 @@
+package data;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+// Applies a saved LinearModel to new data without retraining. The model's standardization is
+// folded into one weight per feature and a constant offset, so scoring is a plain dot product:
+// a whole table is scored column by column, and a large CSV is scored batch by batch into an
+// output file. Rows with a missing feature value score as NaN, unless the scorer has the Imputer
+// the model was trained with, in which case the missing value is filled the same way.
+public class BatchScorer {
+    private final LinearModel model;
+    private final Imputer imputer; // null when missing values are not filled
+    private final String[] featureNames;
+    private final double[] weights;
+    private final double offset;
+
+    public BatchScorer(LinearModel model) {
+        this(model, null);
+    }
+
+    public BatchScorer(LinearModel model, Imputer imputer) {
+        this.model = model;
+        this.imputer = imputer;
+        this.featureNames = model.getFeatureNames();
+        int p = model.getFeatureCount();
+        double[] means = model.getFeatureMeans();
+        double[] stdDevs = model.getFeatureStdDevs();
+        double[] coefficients = model.getCoefficients();
+        double targetStdDev = model.getTargetStdDev();
+
+        weights = new double[p];
+        double standardizedOffset = coefficients[0];
+        for (int j = 0; j < p; j++) {
+            if (stdDevs[j] != 0 && targetStdDev != 0) {
+                weights[j] = coefficients[j + 1] / stdDevs[j] * targetStdDev;
+                standardizedOffset -= coefficients[j + 1] * means[j] / stdDevs[j];
+            }
+        }
+        offset = targetStdDev != 0 ? standardizedOffset * targetStdDev + model.getTargetMean() : model.getTargetMean();
+    }
+
+    public static BatchScorer load(String modelPath) throws IOException {
+        return new BatchScorer(LinearModel.load(modelPath));
+    }
+
+    public static BatchScorer load(String modelPath, String imputerPath) throws IOException {
+        return new BatchScorer(LinearModel.load(modelPath), Imputer.load(imputerPath));
+    }
+
+    public LinearModel getModel() {
+        return model;
+    }
+
+    // Predict every row of the table; the table must contain all of the model's feature columns
+    public double[] score(DataTable table) {
+        int n = table.getRowCount();
+        double[] predictions = new double[n];
+        Arrays.fill(predictions, offset);
+        for (int j = 0; j < featureNames.length; j++) {
+            int column = table.columnIndex(featureNames[j]);
+            double[] values = table.getDoubleColumn(column);
+            double weight = weights[j];
+            if (!table.hasMissing(column)) {
+                for (int row = 0; row < n; row++) {
+                    predictions[row] += weight * values[row];
+                }
+                continue;
+            }
+            int group = groupColumn(table);
+            double[] groups = group >= 0 ? table.getDoubleColumn(group) : null;
+            for (int row = 0; row < n; row++) {
+                if (!table.isMissing(column, row)) {
+                    predictions[row] += weight * values[row];
+                } else {
+                    double groupKey = groups != null && !table.isMissing(group, row) ? groups[row] : Double.NaN;
+                    predictions[row] += weight * fillValue(j, groupKey); // NaN unless imputed
+                }
+            }
+        }
+        return predictions;
+    }
+
+    // Stream the CSV at inputPath through the model, writing one prediction per input row (under a
+    // "prediction" header) to outputPath. Returns the number of rows scored.
+    public long scoreCsv(String inputPath, String outputPath, int batchSize) throws IOException {
+        long scored = 0;
+        try (CsvBatchReader reader = new CsvBatchReader(inputPath, batchSize);
+                BufferedWriter out = Files.newBufferedWriter(Paths.get(outputPath), StandardCharsets.UTF_8)) {
+            int columns = reader.getColumnCount();
+            int[] featureColumns = new int[featureNames.length];
+            for (int j = 0; j < featureNames.length; j++) {
+                featureColumns[j] = reader.columnIndex(featureNames[j]);
+            }
+            int group = imputer != null && imputer.getGroupColumn() != null
+                    ? reader.columnIndex(imputer.getGroupColumn()) : -1;
+            out.write("prediction");
+            out.newLine();
+
+            int rows;
+            while ((rows = reader.next()) > 0) {
+                double[] values = reader.values();
+                for (int row = 0, rowOffset = 0; row < rows; row++, rowOffset += columns) {
+                    double prediction = offset;
+                    for (int j = 0; j < featureColumns.length; j++) {
+                        double value = values[rowOffset + featureColumns[j]];
+                        if (Double.isNaN(value) && imputer != null) {
+                            value = fillValue(j, group >= 0 ? values[rowOffset + group] : Double.NaN);
+                        }
+                        prediction += weights[j] * value;
+                    }
+                    out.write(Double.toString(prediction)); // NaN when a feature is missing
+                    out.newLine();
+                }
+                scored += rows;
+            }
+        }
+        return scored;
+    }
+
+    // Imputed value of feature j (NaN without an imputer or without a fitted value)
+    private double fillValue(int j, double groupKey) {
+        return imputer != null ? imputer.fillValue(featureNames[j], groupKey) : Double.NaN;
+    }
+
+    private int groupColumn(DataTable table) {
+        return imputer != null && imputer.getGroupColumn() != null ? table.columnIndex(imputer.getGroupColumn()) : -1;
+    }
+}
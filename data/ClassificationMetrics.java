@@ -0,0 +1,124 @@
+package data;
+
+// Test-set quality of a binary classifier's predicted probabilities, as reported by
+// LogisticRegression.run: log-loss, the area under the ROC curve and the confusion matrix at a
+// probability threshold. AUC is computed from one sort of the probabilities, as the Mann-Whitney
+// statistic of the positive rows' ranks (tied probabilities share their average rank), so it
+// costs O(n log n) rather than one pass per threshold.
+public class ClassificationMetrics {
+    private static final double PROBABILITY_EPSILON = 1e-15; // Keeps log-loss finite for 0 and 1
+
+    private final double logLoss;
+    private final double auc;
+    private final long truePositives;
+    private final long falsePositives;
+    private final long trueNegatives;
+    private final long falseNegatives;
+
+    public ClassificationMetrics(double logLoss, double auc, long truePositives, long falsePositives,
+            long trueNegatives, long falseNegatives) {
+        this.logLoss = logLoss;
+        this.auc = auc;
+        this.truePositives = truePositives;
+        this.falsePositives = falsePositives;
+        this.trueNegatives = trueNegatives;
+        this.falseNegatives = falseNegatives;
+    }
+
+    // Evaluate probabilities[i] of the positive class against labels[i] (1 positive, 0 negative),
+    // predicting positive when the probability is at least threshold
+    public static ClassificationMetrics compute(double[] probabilities, double[] labels, double threshold) {
+        int n = probabilities.length;
+        if (n == 0) {
+            return new ClassificationMetrics(Double.NaN, Double.NaN, 0, 0, 0, 0);
+        }
+        double sumLogLoss = 0;
+        long truePositives = 0;
+        long falsePositives = 0;
+        long trueNegatives = 0;
+        long falseNegatives = 0;
+        for (int i = 0; i < n; i++) {
+            double probability = Math.min(Math.max(probabilities[i], PROBABILITY_EPSILON), 1 - PROBABILITY_EPSILON);
+            boolean positive = labels[i] == 1;
+            sumLogLoss -= positive ? Math.log(probability) : Math.log(1 - probability);
+            if (probabilities[i] >= threshold) {
+                if (positive) {
+                    truePositives++;
+                } else {
+                    falsePositives++;
+                }
+            } else if (positive) {
+                falseNegatives++;
+            } else {
+                trueNegatives++;
+            }
+        }
+        return new ClassificationMetrics(sumLogLoss / n, auc(probabilities, labels), truePositives, falsePositives,
+                trueNegatives, falseNegatives);
+    }
+
+    // Probability that a random positive row is scored above a random negative one (ties count
+    // half); NaN when either class is absent
+    public static double auc(double[] probabilities, double[] labels) {
+        double[] ranks = RankIndex.of(probabilities).getRanks();
+        long positives = 0;
+        double positiveRankSum = 0;
+        for (int i = 0; i < ranks.length; i++) {
+            if (labels[i] == 1) {
+                positives++;
+                positiveRankSum += ranks[i];
+            }
+        }
+        long negatives = ranks.length - positives;
+        if (positives == 0 || negatives == 0) {
+            return Double.NaN;
+        }
+        return (positiveRankSum - positives * (positives + 1) / 2.0) / ((double) positives * negatives);
+    }
+
+    public double getLogLoss() {
+        return logLoss;
+    }
+
+    public double getAuc() {
+        return auc;
+    }
+
+    public long getTruePositives() {
+        return truePositives;
+    }
+
+    public long getFalsePositives() {
+        return falsePositives;
+    }
+
+    public long getTrueNegatives() {
+        return trueNegatives;
+    }
+
+    public long getFalseNegatives() {
+        return falseNegatives;
+    }
+
+    public long getCount() {
+        return truePositives + falsePositives + trueNegatives + falseNegatives;
+    }
+
+    public double getAccuracy() {
+        return (double) (truePositives + trueNegatives) / getCount();
+    }
+
+    public double getPrecision() {
+        return (double) truePositives / (truePositives + falsePositives);
+    }
+
+    public double getRecall() {
+        return (double) truePositives / (truePositives + falseNegatives);
+    }
+
+    @Override
+    public String toString() {
+        return "logLoss=" + logLoss + ", AUC=" + auc + ", accuracy=" + getAccuracy() + ", TP=" + truePositives
+                + ", FP=" + falsePositives + ", TN=" + trueNegatives + ", FN=" + falseNegatives;
+    }
+}
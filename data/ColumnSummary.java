@@ -0,0 +1,82 @@
+package data;
+
+// Moments and range of the non-missing values of one column, as computed by
+// DescriptiveStatistics.summarize. Variance and standard deviation are population statistics
+// (divided by the count), matching the rest of DescriptiveStatistics; kurtosis is excess kurtosis
+// (0 for a normal distribution). Statistics that are undefined for the column are NaN.
+public class ColumnSummary {
+    private final String name;
+    private final long count;
+    private final long missing;
+    private final double min;
+    private final double max;
+    private final double sum;
+    private final double mean;
+    private final double variance;
+    private final double skewness;
+    private final double kurtosis;
+
+    public ColumnSummary(String name, long count, long missing, double min, double max, double sum, double mean,
+            double variance, double skewness, double kurtosis) {
+        this.name = name;
+        this.count = count;
+        this.missing = missing;
+        this.min = min;
+        this.max = max;
+        this.sum = sum;
+        this.mean = mean;
+        this.variance = variance;
+        this.skewness = skewness;
+        this.kurtosis = kurtosis;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMissing() {
+        return missing;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getVariance() {
+        return variance;
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(variance);
+    }
+
+    public double getSkewness() {
+        return skewness;
+    }
+
+    public double getKurtosis() {
+        return kurtosis;
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnSummary[" + name + ", count=" + count + ", missing=" + missing + ", min=" + min + ", max=" + max
+                + ", mean=" + mean + ", variance=" + variance + ", skewness=" + skewness + ", kurtosis=" + kurtosis + "]";
+    }
+}
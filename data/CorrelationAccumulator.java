@@ -0,0 +1,147 @@
+package data;
+
+import java.util.Arrays;
+
+// Running means and co-moments of a set of columns, for keeping correlations current as rows
+// arrive without rescanning earlier data. Rows are folded in one at a time with Welford's update:
+//   n += 1, d_i = x_i - mean_i, mean_i += d_i / n, C_ij += d_i * d_j * (n - 1) / n
+// and two accumulators over disjoint rows merge exactly (Chan et al.):
+//   C_ij = Ca_ij + Cb_ij + da_i * db_j * na * nb / n, with d = meanB - meanA
+// so partial results from file chunks or threads can be combined. Not thread-safe; give each
+// thread its own accumulator and merge them.
+public class CorrelationAccumulator {
+    private final String[] headers;
+    private final int columns;
+    private long count;
+    private final double[] means;
+    private final double[] comoments; // Upper triangle of the co-moment matrix, row-major columns x columns
+    private final double[] deltas;
+
+    public CorrelationAccumulator(String[] headers) {
+        this.headers = headers.clone();
+        this.columns = headers.length;
+        this.means = new double[columns];
+        this.comoments = new double[columns * columns];
+        this.deltas = new double[columns];
+    }
+
+    // Accumulator already holding the given statistics (comoments in the upper triangle)
+    CorrelationAccumulator(String[] headers, long count, double[] means, double[] comoments) {
+        this(headers);
+        this.count = count;
+        System.arraycopy(means, 0, this.means, 0, columns);
+        System.arraycopy(comoments, 0, this.comoments, 0, columns * columns);
+    }
+
+    // Add one row of values in column order
+    public void add(double[] row) {
+        add(row, 0);
+    }
+
+    // Add the row stored at values[offset] .. values[offset + columns - 1], e.g. one row of a
+    // CsvBatchReader batch
+    public void add(double[] values, int offset) {
+        count++;
+        double weight = (count - 1) / (double) count;
+        for (int i = 0; i < columns; i++) {
+            double delta = values[offset + i] - means[i];
+            deltas[i] = delta;
+            means[i] += delta / count;
+        }
+        for (int i = 0; i < columns; i++) {
+            double scaled = deltas[i] * weight;
+            int base = i * columns;
+            for (int j = i; j < columns; j++) {
+                comoments[base + j] += scaled * deltas[j];
+            }
+        }
+    }
+
+    // Fold in the rows seen by another accumulator over the same columns
+    public void merge(CorrelationAccumulator other) {
+        if (other.columns != columns) {
+            throw new IllegalArgumentException("Cannot merge accumulators over " + columns + " and "
+                    + other.columns + " columns.");
+        }
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            count = other.count;
+            System.arraycopy(other.means, 0, means, 0, columns);
+            System.arraycopy(other.comoments, 0, comoments, 0, columns * columns);
+            return;
+        }
+        long total = count + other.count;
+        double weight = (double) count * other.count / total;
+        for (int i = 0; i < columns; i++) {
+            deltas[i] = other.means[i] - means[i];
+        }
+        for (int i = 0; i < columns; i++) {
+            int base = i * columns;
+            for (int j = i; j < columns; j++) {
+                comoments[base + j] += other.comoments[base + j] + deltas[i] * deltas[j] * weight;
+            }
+            means[i] += deltas[i] * other.count / total;
+        }
+        count = total;
+    }
+
+    public void reset() {
+        count = 0;
+        Arrays.fill(means, 0.0);
+        Arrays.fill(comoments, 0.0);
+    }
+
+    public String[] getHeaders() {
+        return headers.clone();
+    }
+
+    public int getColumnCount() {
+        return columns;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean(int column) {
+        return count > 0 ? means[column] : Double.NaN;
+    }
+
+    // Population covariance (divided by the row count)
+    public double getCovariance(int i, int j) {
+        return count > 0 ? comoment(i, j) / count : Double.NaN;
+    }
+
+    // Population variance (divided by the row count)
+    public double getVariance(int column) {
+        return getCovariance(column, column);
+    }
+
+    // Pearson correlation of two columns; NaN if either is constant or no rows have been added
+    public double getCorrelation(int i, int j) {
+        double varianceI = comoment(i, i);
+        double varianceJ = comoment(j, j);
+        if (count == 0 || !(varianceI > 0) || !(varianceJ > 0)) {
+            return Double.NaN;
+        }
+        return i == j ? 1.0 : comoment(i, j) / (Math.sqrt(varianceI) * Math.sqrt(varianceJ));
+    }
+
+    public CorrelationMatrix toCorrelationMatrix() {
+        double[] correlations = new double[columns * columns];
+        for (int i = 0; i < columns; i++) {
+            for (int j = i; j < columns; j++) {
+                double r = getCorrelation(i, j);
+                correlations[i * columns + j] = r;
+                correlations[j * columns + i] = r;
+            }
+        }
+        return new CorrelationMatrix(headers, correlations);
+    }
+
+    private double comoment(int i, int j) {
+        return i <= j ? comoments[i * columns + j] : comoments[j * columns + i];
+    }
+}
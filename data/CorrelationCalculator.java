@@ -1,126 +1,442 @@
 package data;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class CorrelationCalculator {
 
-    public static Map<String, Map<String, Double>> calculateCorrelations(String filePath) throws IOException {
-        // Read the CSV file
-        FileReader file = new FileReader(filePath);
-        BufferedReader br = new BufferedReader(file);
+    private static final int ROW_TILE = 512; // Rows per tile, sized so one tile of all columns stays in cache
+    private static final int COLUMN_TILE = 64; // Columns per side of one tile in the pair searches
+    private static final int PARALLEL_COLUMNS = 64; // Narrower tables are not worth splitting across threads
 
-        // Variables for data processing
-        String line;
-        List<String> columnHeadings = new ArrayList<>();
-        List<List<Double>> columnData = new ArrayList<>();
+    // Rank indexes per table; weak keys so a table's ranks are dropped along with the table
+    private static final Map<DataTable, CachedRanks> RANK_CACHE = new WeakHashMap<>();
 
-        // Read the header line to determine column headings
-        if ((line = br.readLine()) != null) {
-            String[] headers = line.split(",");
-            columnHeadings = Arrays.asList(headers);
-            for (int i = 0; i < headers.length; i++) {
-                columnData.add(new ArrayList<>()); // Initialize data list for each column
+    // Rank indexes together with the table's modification count when they were computed
+    private static class CachedRanks {
+        final long modificationCount;
+        final RankIndex[] indexes;
+
+        CachedRanks(long modificationCount, RankIndex[] indexes) {
+            this.modificationCount = modificationCount;
+            this.indexes = indexes;
+        }
+    }
+
+    // Pearson correlation of every pair of columns over the rows that have no missing values
+    public static CorrelationMatrix calculateCorrelations(DataTable table) {
+        return accumulate(table).toCorrelationMatrix();
+    }
+
+    // Pearson correlation of every pair of columns after filling missing values with the imputer
+    // (fitted on this table), so incomplete rows still contribute; the table itself is not modified
+    public static CorrelationMatrix calculateCorrelations(DataTable table, Imputer imputer) {
+        DataTable imputed = table.copy();
+        imputer.fit(imputed).transform(imputed);
+        return accumulate(imputed).toCorrelationMatrix();
+    }
+
+    // Means and co-moments of every column over the rows that have no missing values, as an
+    // accumulator that further rows can be added to. They are computed together in one pass over
+    // the table: each tile of rows is copied, shifted by the first value of its column for
+    // numerical stability, into a small column-major scratch block, and the cross products of
+    // that block (its X'X) are added to the running sums.
+    public static CorrelationAccumulator accumulate(DataTable table) {
+        double[][] columns = new double[table.getColumnCount()][];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = table.getDoubleColumn(i);
+        }
+        return accumulate(table.getHeaders(), columns, completeRows(table));
+    }
+
+    // Gram-matrix pass over the given rows of the given columns
+    private static CorrelationAccumulator accumulate(String[] headers, double[][] columns, int[] rows) {
+        int p = headers.length;
+        int n = rows.length;
+        double[] shifts = new double[p];
+        for (int i = 0; i < p; i++) {
+            shifts[i] = n > 0 ? columns[i][rows[0]] : 0;
+        }
+
+        double[] sums = new double[p];
+        double[] products = new double[p * p]; // Upper triangle of the shifted cross products
+        double[] tile = new double[p * ROW_TILE];
+        for (int start = 0; start < n; start += ROW_TILE) {
+            int length = Math.min(ROW_TILE, n - start);
+            for (int i = 0; i < p; i++) {
+                double[] column = columns[i];
+                double shift = shifts[i];
+                int base = i * ROW_TILE;
+                double sum = 0;
+                for (int r = 0; r < length; r++) {
+                    double value = column[rows[start + r]] - shift;
+                    tile[base + r] = value;
+                    sum += value;
+                }
+                sums[i] += sum;
+            }
+            IntStream columnRange = IntStream.range(0, p);
+            if (p >= PARALLEL_COLUMNS) {
+                columnRange = columnRange.parallel();
+            }
+            columnRange.forEach(i -> {
+                int baseI = i * ROW_TILE;
+                for (int j = i; j < p; j++) {
+                    int baseJ = j * ROW_TILE;
+                    double dot = 0;
+                    for (int r = 0; r < length; r++) {
+                        dot += tile[baseI + r] * tile[baseJ + r];
+                    }
+                    products[i * p + j] += dot;
+                }
+            });
+        }
+
+        // Centered co-moments C_ij = S_ij - S_i * S_j / n around the means shift_i + S_i / n
+        double[] means = new double[p];
+        double[] comoments = new double[p * p];
+        for (int i = 0; i < p; i++) {
+            means[i] = n > 0 ? shifts[i] + sums[i] / n : 0;
+            for (int j = i; j < p && n > 0; j++) {
+                comoments[i * p + j] = products[i * p + j] - sums[i] * sums[j] / n;
             }
         }
+        return new CorrelationAccumulator(headers, n, means, comoments);
+    }
 
-        // Read each line of the CSV file
-        while ((line = br.readLine()) != null) {
-            // Skip empty lines
-            if (line.trim().isEmpty()) {
-                continue;
+    // Means and co-moments of every column of a CSV file read in batches, skipping rows with
+    // missing values, for files that do not fit in memory
+    public static CorrelationAccumulator accumulate(CsvBatchReader reader) throws IOException {
+        CorrelationAccumulator accumulator = new CorrelationAccumulator(reader.getHeaders());
+        int columns = reader.getColumnCount();
+        int rows;
+        while ((rows = reader.next()) > 0) {
+            double[] values = reader.values();
+            for (int row = 0, offset = 0; row < rows; row++, offset += columns) {
+                boolean complete = true;
+                for (int i = 0; i < columns && complete; i++) {
+                    complete = !Double.isNaN(values[offset + i]);
+                }
+                if (complete) {
+                    accumulator.add(values, offset);
+                }
             }
+        }
+        return accumulator;
+    }
 
-            // Split the line by comma to get individual values
-            String[] values = line.split(",");
-            if (values.length != columnHeadings.size()) {
-                System.err.println("Error: Data format mismatch in CSV file at line: " + line);
-                continue;
+    // Spearman rank correlation of every pair of columns over the rows that have no missing
+    // values: the Pearson correlation of the columns' average ranks, run through the same Gram
+    // pass as calculateCorrelations on the cached rank indexes
+    public static CorrelationMatrix spearmanCorrelations(DataTable table) {
+        RankIndex[] indexes = rankIndexes(table);
+        double[][] ranks = new double[indexes.length][];
+        for (int i = 0; i < indexes.length; i++) {
+            ranks[i] = indexes[i].getRanks();
+        }
+        int n = indexes.length > 0 ? indexes[0].size() : 0;
+        return accumulate(table.getHeaders(), ranks, IntStream.range(0, n).toArray()).toCorrelationMatrix();
+    }
+
+    // Kendall's tau-b of every pair of columns over the rows that have no missing values, with
+    // the pairs evaluated in parallel from the cached rank indexes
+    public static CorrelationMatrix kendallCorrelations(DataTable table) {
+        RankIndex[] indexes = rankIndexes(table);
+        int p = indexes.length;
+        double[] correlations = new double[p * p];
+        IntStream.range(0, p * p).parallel().forEach(pair -> {
+            int i = pair / p;
+            int j = pair % p;
+            if (i < j) {
+                double tau = kendallTau(indexes[i], indexes[j]);
+                correlations[i * p + j] = tau;
+                correlations[j * p + i] = tau;
+            } else if (i == j) {
+                correlations[pair] = kendallTau(indexes[i], indexes[i]);
             }
+        });
+        return new CorrelationMatrix(table.getHeaders(), correlations);
+    }
 
-            // Process each column's data
-            for (int i = 0; i < values.length; i++) {
-                try {
-                    double value = Double.parseDouble(values[i].trim());
-                    columnData.get(i).add(value); // Add value to the corresponding column's data list
-                } catch (NumberFormatException e) {
-                    System.err.println("Error parsing value at row: " + line + ", column: " + columnHeadings.get(i));
-                    return null;
+    // Rank index of every column over the complete rows, computed in parallel on first use and
+    // kept for as long as the table is in use and unchanged (an in-place fill recomputes them)
+    public static RankIndex[] rankIndexes(DataTable table) {
+        long modificationCount = table.getModificationCount();
+        synchronized (RANK_CACHE) {
+            CachedRanks cached = RANK_CACHE.get(table);
+            if (cached != null && cached.modificationCount == modificationCount) {
+                return cached.indexes;
+            }
+        }
+        int[] rows = completeRows(table);
+        RankIndex[] indexes = IntStream.range(0, table.getColumnCount()).parallel()
+                .mapToObj(i -> RankIndex.of(table.getDoubleColumn(i), rows))
+                .toArray(RankIndex[]::new);
+        synchronized (RANK_CACHE) {
+            RANK_CACHE.put(table, new CachedRanks(modificationCount, indexes));
+        }
+        return indexes;
+    }
+
+    // Kendall's tau-b of two rank indexes over the same rows in O(n log n) (Knight's algorithm):
+    // sort the rows by (x, y), then count the exchanges a merge sort on y needs, which is the
+    // number of discordant pairs. NaN if either column is constant.
+    public static double kendallTau(RankIndex x, RankIndex y) {
+        int n = x.size();
+        if (y.size() != n) {
+            throw new IllegalArgumentException("Rank indexes cover " + n + " and " + y.size() + " rows.");
+        }
+        int[] xRanks = x.getMinRanks();
+        int[] yRanks = y.getMinRanks();
+        long[] keys = new long[n];
+        for (int r = 0; r < n; r++) {
+            keys[r] = (long) xRanks[r] << 32 | yRanks[r];
+        }
+        Arrays.sort(keys);
+
+        // Pairs tied in x, and tied in both x and y
+        long pairs = (long) n * (n - 1) / 2;
+        long xTies = 0;
+        long jointTies = 0;
+        int[] sequence = new int[n];
+        for (int start = 0; start < n; ) {
+            int xEnd = start;
+            while (xEnd < n && keys[xEnd] >>> 32 == keys[start] >>> 32) {
+                xEnd++;
+            }
+            xTies += tiedPairs(xEnd - start);
+            for (int jointStart = start; jointStart < xEnd; ) {
+                int jointEnd = jointStart;
+                while (jointEnd < xEnd && keys[jointEnd] == keys[jointStart]) {
+                    jointEnd++;
                 }
+                jointTies += tiedPairs(jointEnd - jointStart);
+                jointStart = jointEnd;
+            }
+            for (int r = start; r < xEnd; r++) {
+                sequence[r] = (int) keys[r];
             }
+            start = xEnd;
         }
 
-        // Calculate Pearson correlation coefficient for each pair of columns
-        Map<String, Map<String, Double>> correlationMap = new HashMap<>();
-        for (int i = 0; i < columnHeadings.size(); i++) {
-            String heading1 = columnHeadings.get(i);
-            List<Double> data1 = columnData.get(i);
-            for (int j = i + 1; j < columnHeadings.size(); j++) {
-                String heading2 = columnHeadings.get(j);
-                List<Double> data2 = columnData.get(j);
-                double correlation = calculatePearsonCorrelation(data1, data2);
-                correlationMap.computeIfAbsent(heading1, k -> new HashMap<>()).put(heading2, correlation);
-                correlationMap.computeIfAbsent(heading2, k -> new HashMap<>()).put(heading1, correlation);
+        long exchanges = mergeSortExchanges(sequence, new int[n], 0, n);
+        long yTies = 0;
+        for (int start = 0; start < n; ) {
+            int end = start;
+            while (end < n && sequence[end] == sequence[start]) {
+                end++;
             }
+            yTies += tiedPairs(end - start);
+            start = end;
         }
 
-        // Close the file reader
-        br.close();
-        file.close();
+        double denominator = Math.sqrt((double) (pairs - xTies) * (pairs - yTies));
+        if (!(denominator > 0)) {
+            return Double.NaN;
+        }
+        return (pairs - xTies - yTies + jointTies - 2.0 * exchanges) / denominator;
+    }
 
-        return correlationMap;
+    private static long tiedPairs(long count) {
+        return count * (count - 1) / 2;
+    }
+
+    // Sort values[from, to) ascending and return the number of inversions (pairs out of order)
+    private static long mergeSortExchanges(int[] values, int[] scratch, int from, int to) {
+        if (to - from < 2) {
+            return 0;
+        }
+        int mid = (from + to) >>> 1;
+        long exchanges = mergeSortExchanges(values, scratch, from, mid) + mergeSortExchanges(values, scratch, mid, to);
+        int left = from;
+        int right = mid;
+        int out = from;
+        while (left < mid && right < to) {
+            if (values[right] < values[left]) {
+                exchanges += mid - left;
+                scratch[out++] = values[right++];
+            } else {
+                scratch[out++] = values[left++];
+            }
+        }
+        while (left < mid) {
+            scratch[out++] = values[left++];
+        }
+        while (right < to) {
+            scratch[out++] = values[right++];
+        }
+        System.arraycopy(scratch, from, values, from, to - from);
+        return exchanges;
     }
 
-    public static Map.Entry<String, String> findBestPair(Map<String, Map<String, Double>> correlationMap) {
+    // Rows with a value in every column; rows with missing values are reported and skipped
+    private static int[] completeRows(DataTable table) {
+        int[] rows = table.completeRows();
+        if (rows.length < table.getRowCount()) {
+            for (int row = 0, next = 0; row < table.getRowCount(); row++) {
+                if (next < rows.length && rows[next] == row) {
+                    next++;
+                    continue;
+                }
+                int column = 0;
+                while (!table.isMissing(column, row)) {
+                    column++;
+                }
+                System.err.println("Error: Missing value in CSV file at row: " + (row + 1) + ", column: " + table.getHeader(column));
+            }
+        }
+        return rows;
+    }
+
+    // Most strongly correlated pair of distinct columns by |r|, positive or negative; null if no
+    // pair has a defined correlation
+    public static Map.Entry<String, String> findBestPair(CorrelationMatrix correlations) {
         Map.Entry<String, String> bestPair = null;
-        double maxCorrelation = Double.MIN_VALUE;
-        for (Map.Entry<String, Map<String, Double>> entry : correlationMap.entrySet()) {
-            for (Map.Entry<String, Double> correlationEntry : entry.getValue().entrySet()) {
-                if (correlationEntry.getValue() > maxCorrelation) {
-                    maxCorrelation = correlationEntry.getValue();
-                    bestPair = new AbstractMap.SimpleEntry<>(entry.getKey(), correlationEntry.getKey());
+        double maxCorrelation = -1;
+        for (int i = 0; i < correlations.size(); i++) {
+            for (int j = i + 1; j < correlations.size(); j++) {
+                double strength = Math.abs(correlations.get(i, j));
+                if (strength > maxCorrelation) {
+                    maxCorrelation = strength;
+                    bestPair = new AbstractMap.SimpleEntry<>(correlations.getHeader(i), correlations.getHeader(j));
                 }
             }
         }
         return bestPair;
     }
 
-    // Method to calculate the Pearson correlation coefficient
-    private static double calculatePearsonCorrelation(List<Double> xValues, List<Double> yValues) {
-        if (xValues.size() != yValues.size()) {
-            throw new IllegalArgumentException("Input lists must have the same size.");
+    // The k pairs of distinct columns with the largest |r|, strongest first, over the rows that
+    // have no missing values. Only k pairs are kept at a time, so this works for tables far too
+    // wide for the full correlation matrix.
+    public static List<CorrelationPair> topPairs(DataTable table, int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        return searchPairs(table, k, 0);
+    }
+
+    // All pairs of distinct columns with |r| >= threshold, strongest first
+    public static List<CorrelationPair> pairsAbove(DataTable table, double threshold) {
+        return searchPairs(table, Integer.MAX_VALUE, threshold);
+    }
+
+    // The columns are standardized once over the complete rows, so r_ij is the dot product of
+    // standardized columns i and j. Square tiles of COLUMN_TILE x COLUMN_TILE pairs are computed
+    // in parallel, a row tile at a time, and each tile keeps its own bounded min-heap of the best
+    // pairs it has seen; the heaps are merged at the end. Memory is O(p * n) for the standardized
+    // columns plus O(k) per tile, never O(p^2).
+    private static List<CorrelationPair> searchPairs(DataTable table, int k, double threshold) {
+        String[] headers = table.getHeaders();
+        int p = headers.length;
+        int[] rows = completeRows(table);
+        double[][] standardized = new double[p][];
+        for (int i = 0; i < p; i++) {
+            standardized[i] = standardize(table.getDoubleColumn(i), rows);
         }
 
-        double meanX = calculateMean(xValues);
-        double meanY = calculateMean(yValues);
+        int tiles = (p + COLUMN_TILE - 1) / COLUMN_TILE;
+        List<int[]> tilePairs = new ArrayList<>();
+        for (int a = 0; a < tiles; a++) {
+            for (int b = a; b < tiles; b++) {
+                tilePairs.add(new int[]{a, b});
+            }
+        }
+        List<PriorityQueue<CorrelationPair>> heaps = tilePairs.parallelStream()
+                .map(tile -> searchTile(headers, standardized, rows.length, tile[0] * COLUMN_TILE,
+                        tile[1] * COLUMN_TILE, k, threshold))
+                .collect(Collectors.toList());
 
-        double sumXY = 0;
-        double sumX2 = 0;
-        double sumY2 = 0;
+        PriorityQueue<CorrelationPair> best = new PriorityQueue<>(CorrelationCalculator::weakestFirst);
+        for (PriorityQueue<CorrelationPair> heap : heaps) {
+            for (CorrelationPair pair : heap) {
+                offer(best, pair, k);
+            }
+        }
+        List<CorrelationPair> result = new ArrayList<>(best);
+        result.sort(CorrelationPair::compareByStrength);
+        return result;
+    }
 
-        for (int i = 0; i < xValues.size(); i++) {
-            double xMinusMean = xValues.get(i) - meanX;
-            double yMinusMean = yValues.get(i) - meanY;
-            sumXY += xMinusMean * yMinusMean;
-            sumX2 += xMinusMean * xMinusMean;
-            sumY2 += yMinusMean * yMinusMean;
+    private static PriorityQueue<CorrelationPair> searchTile(String[] headers, double[][] standardized, int n,
+            int startI, int startJ, int k, double threshold) {
+        int p = headers.length;
+        int endI = Math.min(startI + COLUMN_TILE, p);
+        int endJ = Math.min(startJ + COLUMN_TILE, p);
+        double[] dots = new double[COLUMN_TILE * COLUMN_TILE];
+        for (int start = 0; start < n; start += ROW_TILE) {
+            int end = Math.min(start + ROW_TILE, n);
+            for (int i = startI; i < endI; i++) {
+                double[] columnI = standardized[i];
+                if (columnI == null) {
+                    continue;
+                }
+                for (int j = Math.max(startJ, i + 1); j < endJ; j++) {
+                    double[] columnJ = standardized[j];
+                    if (columnJ == null) {
+                        continue;
+                    }
+                    double dot = 0;
+                    for (int r = start; r < end; r++) {
+                        dot += columnI[r] * columnJ[r];
+                    }
+                    dots[(i - startI) * COLUMN_TILE + (j - startJ)] += dot;
+                }
+            }
         }
 
-        return sumXY / (Math.sqrt(sumX2) * Math.sqrt(sumY2));
+        PriorityQueue<CorrelationPair> heap = new PriorityQueue<>(CorrelationCalculator::weakestFirst);
+        for (int i = startI; i < endI; i++) {
+            for (int j = Math.max(startJ, i + 1); j < endJ; j++) {
+                if (standardized[i] == null || standardized[j] == null) {
+                    continue;
+                }
+                // Rounding can push |r| of (anti)collinear columns just past 1
+                double r = Math.max(-1.0, Math.min(1.0, dots[(i - startI) * COLUMN_TILE + (j - startJ)]));
+                if (Math.abs(r) >= threshold) {
+                    offer(heap, new CorrelationPair(headers[i], headers[j], i, j, r), k);
+                }
+            }
+        }
+        return heap;
     }
 
-    // Method to calculate the mean of a list of values
-    private static double calculateMean(List<Double> values) {
-        if (values.isEmpty()) {
-            throw new IllegalArgumentException("Input list must not be empty.");
+    // Add a pair to a min-heap holding at most k pairs, dropping the weakest
+    private static void offer(PriorityQueue<CorrelationPair> heap, CorrelationPair pair, int k) {
+        if (heap.size() < k) {
+            heap.add(pair);
+        } else if (weakestFirst(pair, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(pair);
         }
+    }
 
-        double sum = 0;
-        for (double value : values) {
-            sum += value;
+    private static int weakestFirst(CorrelationPair a, CorrelationPair b) {
+        return CorrelationPair.compareByStrength(b, a);
+    }
+
+    // (x - mean) / sqrt(sum of squared deviations) over the given rows, or null for a constant column
+    private static double[] standardize(double[] values, int[] rows) {
+        int n = rows.length;
+        double mean = 0;
+        for (int row : rows) {
+            mean += values[row];
+        }
+        mean /= n;
+        double sumSquares = 0;
+        for (int row : rows) {
+            double deviation = values[row] - mean;
+            sumSquares += deviation * deviation;
+        }
+        if (!(sumSquares > 0)) {
+            return null;
+        }
+        double scale = 1 / Math.sqrt(sumSquares);
+        double[] standardized = new double[n];
+        for (int r = 0; r < n; r++) {
+            standardized[r] = (values[rows[r]] - mean) * scale;
         }
-        return sum / values.size();
+        return standardized;
     }
 }
@@ -0,0 +1,60 @@
+package data;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Dense symmetric matrix of pairwise correlations between named columns.
+// The coefficient of columns i and j is stored at values[i * size + j] and values[j * size + i].
+public class CorrelationMatrix {
+    private final String[] headers;
+    private final Map<String, Integer> headerIndex;
+    private final double[] values;
+
+    public CorrelationMatrix(String[] headers, double[] values) {
+        if (values.length != headers.length * headers.length) {
+            throw new IllegalArgumentException("Expected a " + headers.length + " x " + headers.length + " matrix.");
+        }
+        this.headers = headers.clone();
+        this.values = values;
+        this.headerIndex = new HashMap<>();
+        for (int i = 0; i < headers.length; i++) {
+            headerIndex.put(headers[i], i);
+        }
+    }
+
+    public int size() {
+        return headers.length;
+    }
+
+    public String[] getHeaders() {
+        return headers.clone();
+    }
+
+    public String getHeader(int i) {
+        return headers[i];
+    }
+
+    // Index of the column with the given header, or -1 if there is none
+    public int indexOf(String header) {
+        Integer index = headerIndex.get(header);
+        return index == null ? -1 : index;
+    }
+
+    public double get(int i, int j) {
+        return values[i * headers.length + j];
+    }
+
+    public double get(String header1, String header2) {
+        int i = indexOf(header1);
+        int j = indexOf(header2);
+        if (i < 0 || j < 0) {
+            throw new IllegalArgumentException("Unknown column: " + (i < 0 ? header1 : header2));
+        }
+        return get(i, j);
+    }
+
+    // Row-major backing array; callers must not modify it
+    public double[] getValues() {
+        return values;
+    }
+}
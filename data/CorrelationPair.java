@@ -0,0 +1,53 @@
+package data;
+
+// Correlation coefficient of one pair of columns, as returned by the pair searches in
+// CorrelationCalculator. The first column always comes before the second in the table.
+public class CorrelationPair {
+    private final String column1;
+    private final String column2;
+    private final int index1;
+    private final int index2;
+    private final double correlation;
+
+    public CorrelationPair(String column1, String column2, int index1, int index2, double correlation) {
+        this.column1 = column1;
+        this.column2 = column2;
+        this.index1 = index1;
+        this.index2 = index2;
+        this.correlation = correlation;
+    }
+
+    public String getColumn1() {
+        return column1;
+    }
+
+    public String getColumn2() {
+        return column2;
+    }
+
+    public int getIndex1() {
+        return index1;
+    }
+
+    public int getIndex2() {
+        return index2;
+    }
+
+    public double getCorrelation() {
+        return correlation;
+    }
+
+    // Strongest first by |r|, then in column order, so results do not depend on thread timing
+    static int compareByStrength(CorrelationPair a, CorrelationPair b) {
+        int order = Double.compare(Math.abs(b.correlation), Math.abs(a.correlation));
+        if (order == 0) {
+            order = Integer.compare(a.index1, b.index1);
+        }
+        return order != 0 ? order : Integer.compare(a.index2, b.index2);
+    }
+
+    @Override
+    public String toString() {
+        return column1 + " <-> " + column2 + ": " + correlation;
+    }
+}
@@ -0,0 +1,168 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+// k-fold cross-validation and grid search for LinearRegression's gradient descent. All
+// (configuration, fold) pairs are trained concurrently on one shared, read-only DesignMatrix;
+// folds are arrays of row indexes into it, so no rows are copied. Each fold is imputed (optionally)
+// and standardized with the statistics of its own training rows, applied as the rows are read (a
+// FeatureTransform), so no test row influences the preprocessing it is evaluated under.
+public class CrossValidation {
+
+    // Mean test metrics of one (learning rate, regularization) pair over all folds
+    public static class Result {
+        private final double learningRate;
+        private final double regularization;
+        private final RegressionMetrics[] foldMetrics;
+        private final RegressionMetrics meanMetrics;
+
+        Result(double learningRate, double regularization, RegressionMetrics[] foldMetrics) {
+            this.learningRate = learningRate;
+            this.regularization = regularization;
+            this.foldMetrics = foldMetrics;
+            this.meanMetrics = RegressionMetrics.mean(foldMetrics);
+        }
+
+        public double getLearningRate() {
+            return learningRate;
+        }
+
+        public double getRegularization() {
+            return regularization;
+        }
+
+        public RegressionMetrics[] getFoldMetrics() {
+            return foldMetrics.clone();
+        }
+
+        public RegressionMetrics getMeanMetrics() {
+            return meanMetrics;
+        }
+
+        @Override
+        public String toString() {
+            return "learningRate=" + learningRate + ", regularization=" + regularization + ": " + meanMetrics;
+        }
+    }
+
+    // Test rows of each of k folds: a seeded permutation of the rows (DataSplitter.permutation)
+    // dealt out round-robin
+    public static int[][] kFoldTestRows(int rows, int k, long seed) {
+        checkFolds(rows, k);
+        return deal(DataSplitter.permutation(rows, seed), k);
+    }
+
+    // Test rows of each of k folds, stratified on labels[row]: the seeded permutation is stably
+    // grouped by label value (values in order of first appearance in the permutation) before it is
+    // dealt out round-robin, so every fold gets an even share of each value
+    public static int[][] kFoldTestRows(double[] labels, int k, long seed) {
+        int rows = labels.length;
+        checkFolds(rows, k);
+        int[] order = DataSplitter.permutation(rows, seed);
+        DoubleLongHashMap ids = new DoubleLongHashMap();
+        int[] strata = new int[rows];
+        for (int row : order) {
+            strata[row] = (int) ids.putIfAbsent(labels[row], ids.size());
+        }
+        int[] starts = new int[ids.size() + 1];
+        for (int stratum : strata) {
+            starts[stratum + 1]++;
+        }
+        for (int stratum = 0; stratum < ids.size(); stratum++) {
+            starts[stratum + 1] += starts[stratum];
+        }
+        int[] grouped = new int[rows];
+        for (int row : order) {
+            grouped[starts[strata[row]]++] = row;
+        }
+        return deal(grouped, k);
+    }
+
+    private static void checkFolds(int rows, int k) {
+        if (k < 2 || k > rows) {
+            throw new IllegalArgumentException("Cannot make " + k + " folds from " + rows + " rows.");
+        }
+    }
+
+    // Deal the rows out to k folds in turn, each fold then sorted to visit rows in memory order
+    private static int[][] deal(int[] order, int k) {
+        int rows = order.length;
+        int[][] folds = new int[k][];
+        for (int fold = 0; fold < k; fold++) {
+            folds[fold] = new int[(rows - fold + k - 1) / k];
+        }
+        for (int i = 0; i < rows; i++) {
+            folds[i % k][i / k] = order[i];
+        }
+        for (int[] fold : folds) {
+            Arrays.sort(fold);
+        }
+        return folds;
+    }
+
+    // All rows not in the given test rows (which must be sorted)
+    public static int[] complement(int[] testRows, int rows) {
+        int[] trainRows = new int[rows - testRows.length];
+        for (int row = 0, t = 0, i = 0; row < rows; row++) {
+            if (t < testRows.length && testRows[t] == row) {
+                t++;
+            } else {
+                trainRows[i++] = row;
+            }
+        }
+        return trainRows;
+    }
+
+    // Evaluate every (learningRate, regularization) pair with k-fold cross-validation on the
+    // unscaled matrix, with folds stratified on the target values. Results are sorted by mean test
+    // MSE (in standardized target units), best first.
+    public static List<Result> gridSearch(DesignMatrix data, int k, double[] learningRates, double[] regularizations,
+            TrainingOptions baseOptions, long seed) {
+        return gridSearch(data, k, learningRates, regularizations, null, baseOptions, seed);
+    }
+
+    // Grid search on a matrix whose missing features are NaN: each fold fills them with an Imputer
+    // of the given strategy fitted on its training rows (no filling when imputation is null)
+    public static List<Result> gridSearch(DesignMatrix data, int k, double[] learningRates, double[] regularizations,
+            Imputer.Strategy imputation, TrainingOptions baseOptions, long seed) {
+        int[][] testRows = kFoldTestRows(data.getY(), k, seed);
+        int[][] trainRows = new int[k][];
+        FeatureTransform[] transforms = new FeatureTransform[k];
+        IntStream.range(0, k).parallel().forEach(fold -> {
+            trainRows[fold] = complement(testRows[fold], data.getRowCount());
+            double[] fills = imputation != null
+                    ? new Imputer(imputation).fit(data, trainRows[fold]).fillValues(data.getFeatureNames())
+                    : null;
+            transforms[fold] = FeatureTransform.of(StandardScaler.fit(data, trainRows[fold], fills), fills);
+        });
+
+        int configurations = learningRates.length * regularizations.length;
+        RegressionMetrics[][] metrics = new RegressionMetrics[configurations][k];
+        IntStream.range(0, configurations * k).parallel().forEach(task -> {
+            int configuration = task / k;
+            int fold = task % k;
+            TrainingOptions options = new TrainingOptions()
+                    .setMaxIterations(baseOptions.getMaxIterations())
+                    .setLossTolerance(baseOptions.getLossTolerance())
+                    .setGradientTolerance(baseOptions.getGradientTolerance())
+                    .setLearningRate(learningRates[configuration / regularizations.length])
+                    .setRegularization(regularizations[configuration % regularizations.length])
+                    .setTransform(transforms[fold]);
+            double[] coefficients = LinearRegression.trainLinearRegression(data, trainRows[fold], options);
+            metrics[configuration][fold] = RegressionMetrics.compute(coefficients, data, testRows[fold],
+                    transforms[fold]);
+        });
+
+        List<Result> results = new ArrayList<>();
+        for (int configuration = 0; configuration < configurations; configuration++) {
+            results.add(new Result(learningRates[configuration / regularizations.length],
+                    regularizations[configuration % regularizations.length], metrics[configuration]));
+        }
+        results.sort(Comparator.comparingDouble(result -> result.getMeanMetrics().getMse()));
+        return results;
+    }
+}
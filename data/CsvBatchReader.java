@@ -0,0 +1,168 @@
+package data;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+
+// Reads a numeric CSV file in fixed-size batches of rows, for data that does not fit in memory.
+// The file is memory-mapped one window at a time and each batch is decoded into the same reused
+// row-major array, so heap use depends only on the batch size. Missing and unparsable cells are
+// returned as NaN. rewind() starts another pass over the file.
+public class CsvBatchReader implements AutoCloseable {
+    private final FileChannel channel;
+    private final String[] headers;
+    private final List<long[]> ranges;
+    private final int batchSize;
+    private final double[] values;
+    private final NumberDecoder decoder = new NumberDecoder();
+    private final CsvParser.MissingTokens missingTokens;
+
+    private int rangeIndex;
+    private MappedByteBuffer buffer;
+    private int position;
+
+    public CsvBatchReader(String filePath, int batchSize) throws IOException {
+        this(filePath, batchSize, CsvParser.DEFAULT_MISSING_TOKENS);
+    }
+
+    // Reader that also returns NaN for cells whose trimmed text is one of missingTokens
+    public CsvBatchReader(String filePath, int batchSize, Collection<String> missingTokens) throws IOException {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size == 0) {
+                throw new IOException("CSV file is empty: " + filePath);
+            }
+            MappedByteBuffer headerBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    Math.min(size, CsvParser.MAX_RANGE_SIZE));
+            int headerEnd = CsvParser.nextLineStart(headerBuffer, 0, headerBuffer.limit());
+            this.headers = CsvParser.parseHeader(headerBuffer, headerEnd);
+            this.ranges = CsvParser.splitRanges(channel, headerEnd, size, CsvParser.MAX_RANGE_SIZE);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        this.batchSize = batchSize;
+        this.missingTokens = new CsvParser.MissingTokens(missingTokens);
+        this.values = new double[batchSize * headers.length];
+        rewind();
+    }
+
+    public String[] getHeaders() {
+        return headers.clone();
+    }
+
+    public int getColumnCount() {
+        return headers.length;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    // Index of the column with the given header, failing if there is none
+    public int columnIndex(String header) {
+        for (int i = 0; i < headers.length; i++) {
+            if (headers[i].equals(header)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown column: " + header);
+    }
+
+    // Row-major values of the current batch: row r, column c is values()[r * getColumnCount() + c]
+    public double[] values() {
+        return values;
+    }
+
+    // Start again from the first data row
+    public void rewind() {
+        rangeIndex = -1;
+        buffer = null;
+        position = 0;
+    }
+
+    // Read up to getBatchSize() rows into values(); returns the number read, 0 at the end of the file
+    public int next() throws IOException {
+        int rows = 0;
+        while (rows < batchSize) {
+            if (buffer == null || position >= buffer.limit()) {
+                if (rangeIndex + 1 >= ranges.size()) {
+                    break;
+                }
+                long[] range = ranges.get(++rangeIndex);
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, range[0], range[1] - range[0]);
+                position = 0;
+                continue;
+            }
+            if (readLine(rows * headers.length)) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    // Decode the line at the current position into values starting at offset; false for a blank line
+    private boolean readLine(int offset) {
+        int end = buffer.limit();
+        int lineStart = position;
+        while (position < end && CsvParser.isBlank(buffer.get(position))) {
+            position++;
+        }
+        if (position == end || buffer.get(position) == '\n') {
+            position = Math.min(position + 1, end);
+            return false;
+        }
+
+        int column = 0;
+        int cellStart = lineStart;
+        int pos = lineStart;
+        while (true) {
+            byte b = pos < end ? buffer.get(pos) : (byte) '\n';
+            if (b == ',' || b == '\n') {
+                if (column < headers.length) {
+                    values[offset + column] = decodeCell(cellStart, pos);
+                }
+                column++;
+                pos++;
+                cellStart = pos;
+                if (b == '\n') {
+                    break;
+                }
+            } else {
+                pos++;
+            }
+        }
+        for (; column < headers.length; column++) {
+            values[offset + column] = Double.NaN; // Short row
+        }
+        position = Math.min(pos, end);
+        return true;
+    }
+
+    private double decodeCell(int from, int to) {
+        while (from < to && CsvParser.isBlank(buffer.get(from))) {
+            from++;
+        }
+        while (to > from && CsvParser.isBlank(buffer.get(to - 1))) {
+            to--;
+        }
+        if (from == to || missingTokens.matches(buffer, from, to)) {
+            return Double.NaN;
+        }
+        return decoder.decode(buffer, from, to) ? decoder.value : Double.NaN;
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer = null;
+        channel.close();
+    }
+}
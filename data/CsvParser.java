@@ -0,0 +1,477 @@
+package data;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+// Parses a numeric CSV file into a DataTable without creating an object per line or per cell.
+// The file is memory-mapped and scanned byte by byte; cells are decoded directly from the
+// mapped bytes into primitive column arrays and missing cells are recorded in null bitmaps.
+// Quoted fields are not supported: every cell is expected to be a plain number or missing.
+public class CsvParser {
+
+    // Receives the cells that could not be stored as numbers, in row order
+    public interface ParseListener {
+        // Called for an empty cell, a missing-value token or a cell missing at the end of a short row
+        void missingCell(int row, int column);
+
+        // Called for a cell that is not a number; the cell is stored as missing
+        void malformedCell(int row, int column, String text);
+    }
+
+    public static final ParseListener IGNORE = new ParseListener() {
+        @Override
+        public void missingCell(int row, int column) {
+        }
+
+        @Override
+        public void malformedCell(int row, int column, String text) {
+        }
+    };
+
+    static final int MAX_RANGE_SIZE = 1 << 30; // Largest single mapping
+    private static final long MIN_PARALLEL_RANGE_SIZE = 4L << 20; // Smaller ranges are not worth a task
+    private static final int RANGES_PER_THREAD = 4; // Extra ranges even out uneven line lengths
+    static final long PARALLEL_THRESHOLD = 2 * MIN_PARALLEL_RANGE_SIZE; // Smallest file parsed in parallel by default
+    // Cell texts that mean "missing" unless other tokens are given; an empty cell always does
+    public static final List<String> DEFAULT_MISSING_TOKENS = Collections.singletonList("?");
+
+    public static DataTable parse(String filePath) throws IOException {
+        return parse(filePath, IGNORE);
+    }
+
+    // Parse on all cores when the file is large enough to benefit from it
+    public static DataTable parse(String filePath, ParseListener listener) throws IOException {
+        return parse(filePath, listener, Files.size(Paths.get(filePath)) >= PARALLEL_THRESHOLD);
+    }
+
+    // In parallel mode the file is split into byte ranges aligned to line starts; each range is
+    // parsed on a fork-join worker into its own chunk and the chunks are joined in file order,
+    // so the resulting row order (and listener callback order) is the same in both modes.
+    public static DataTable parse(String filePath, ParseListener listener, boolean parallel) throws IOException {
+        return parse(filePath, listener, parallel, DEFAULT_MISSING_TOKENS);
+    }
+
+    // Parse treating every cell whose trimmed text is one of missingTokens (compared exactly,
+    // e.g. "NA", "null", "?") as missing
+    public static DataTable parse(String filePath, ParseListener listener, boolean parallel,
+            Collection<String> missingTokens) throws IOException {
+        MissingTokens tokens = new MissingTokens(missingTokens);
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                throw new IOException("CSV file is empty: " + filePath);
+            }
+
+            MappedByteBuffer headerBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, MAX_RANGE_SIZE));
+            int headerEnd = nextLineStart(headerBuffer, 0, headerBuffer.limit());
+            String[] headers = parseHeader(headerBuffer, headerEnd);
+            boolean recordIssues = listener != IGNORE;
+
+            long rangeSize = MAX_RANGE_SIZE;
+            if (parallel) {
+                int ranges = ForkJoinPool.commonPool().getParallelism() * RANGES_PER_THREAD;
+                rangeSize = Math.min(MAX_RANGE_SIZE, Math.max(MIN_PARALLEL_RANGE_SIZE, (size - headerEnd) / ranges + 1));
+            }
+            List<long[]> ranges = splitRanges(channel, headerEnd, size, rangeSize);
+
+            List<ColumnChunk> chunks;
+            if (parallel && ranges.size() > 1) {
+                try {
+                    chunks = ranges.parallelStream()
+                            .map(range -> parseRange(channel, range, new ColumnChunk(headers.length, recordIssues, tokens)))
+                            .collect(Collectors.toList());
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            } else {
+                ColumnChunk chunk = new ColumnChunk(headers.length, recordIssues, tokens);
+                for (long[] range : ranges) {
+                    parseRange(channel, range, chunk);
+                }
+                chunks = Collections.singletonList(chunk);
+            }
+
+            int rowOffset = 0;
+            for (ColumnChunk chunk : chunks) {
+                chunk.report(listener, rowOffset);
+                rowOffset += chunk.rows;
+            }
+            return concatenate(headers, chunks);
+        }
+    }
+
+    // Split [start, size) into ranges of about rangeSize bytes, each ending just after a line break
+    static List<long[]> splitRanges(FileChannel channel, long start, long size, long rangeSize) throws IOException {
+        List<long[]> ranges = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(8192);
+        long rangeStart = start;
+        while (rangeStart < size) {
+            long rangeEnd = rangeStart + rangeSize;
+            if (rangeEnd >= size) {
+                rangeEnd = size;
+            } else {
+                rangeEnd = nextLineStart(channel, rangeEnd, size, probe);
+            }
+            if (rangeEnd - rangeStart > Integer.MAX_VALUE) {
+                throw new IOException("Line longer than " + MAX_RANGE_SIZE + " bytes at offset " + rangeStart);
+            }
+            ranges.add(new long[] { rangeStart, rangeEnd });
+            rangeStart = rangeEnd;
+        }
+        return ranges;
+    }
+
+    // File position just after the first '\n' at or after from, or size if there is none
+    private static long nextLineStart(FileChannel channel, long from, long size, ByteBuffer probe) throws IOException {
+        long position = from;
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static ColumnChunk parseRange(FileChannel channel, long[] range, ColumnChunk chunk) {
+        try {
+            int length = (int) (range[1] - range[0]);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, range[0], length);
+            chunk.parse(buffer, 0, length);
+            return chunk;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Join the chunks in order into the final primitive columns and null bitmaps
+    private static DataTable concatenate(String[] headers, List<ColumnChunk> chunks) {
+        int columnCount = headers.length;
+        int rows = 0;
+        for (ColumnChunk chunk : chunks) {
+            if (rows + (long) chunk.rows > Integer.MAX_VALUE) {
+                throw new IllegalStateException("CSV file has more than " + Integer.MAX_VALUE + " rows.");
+            }
+            rows += chunk.rows;
+        }
+
+        DataTable.ColumnType[] types = new DataTable.ColumnType[columnCount];
+        Object[] columns = new Object[columnCount];
+        long[][] bitmaps = new long[columnCount][];
+        for (int column = 0; column < columnCount; column++) {
+            boolean integral = true;
+            boolean hasValue = false;
+            for (ColumnChunk chunk : chunks) {
+                integral &= chunk.integral[column];
+                hasValue |= chunk.hasValue[column];
+            }
+
+            long[] bitmap = new long[(rows + 63) >>> 6];
+            int offset = 0;
+            for (ColumnChunk chunk : chunks) {
+                copyBits(chunk.nulls[column], chunk.rows, bitmap, offset);
+                offset += chunk.rows;
+            }
+            bitmaps[column] = bitmap;
+
+            if (integral && hasValue) {
+                int[] ints = new int[rows];
+                offset = 0;
+                for (ColumnChunk chunk : chunks) {
+                    double[] chunkValues = chunk.values[column];
+                    for (int row = 0; row < chunk.rows; row++) {
+                        double value = chunkValues[row];
+                        ints[offset + row] = value == value ? (int) value : 0; // Missing cells become 0
+                    }
+                    offset += chunk.rows;
+                }
+                types[column] = DataTable.ColumnType.INT;
+                columns[column] = ints;
+            } else if (chunks.size() == 1 && chunks.get(0).values[column].length == rows) {
+                types[column] = DataTable.ColumnType.DOUBLE;
+                columns[column] = chunks.get(0).values[column]; // Already exactly sized
+            } else {
+                double[] doubles = new double[rows];
+                offset = 0;
+                for (ColumnChunk chunk : chunks) {
+                    System.arraycopy(chunk.values[column], 0, doubles, offset, chunk.rows);
+                    offset += chunk.rows;
+                }
+                types[column] = DataTable.ColumnType.DOUBLE;
+                columns[column] = doubles;
+            }
+            for (ColumnChunk chunk : chunks) {
+                chunk.values[column] = null; // Let finished chunk columns be collected early
+            }
+        }
+        return new DataTable(headers, types, columns, bitmaps, rows);
+    }
+
+    // OR the first bitCount bits of src into dst starting at bit dstOffset
+    static void copyBits(long[] src, int bitCount, long[] dst, int dstOffset) {
+        int words = (bitCount + 63) >>> 6;
+        int shift = dstOffset & 63;
+        int target = dstOffset >>> 6;
+        for (int i = 0; i < words; i++) {
+            long word = src[i];
+            if (i == words - 1 && (bitCount & 63) != 0) {
+                word &= (1L << bitCount) - 1; // Drop bits past the last row
+            }
+            if (word == 0) {
+                continue;
+            }
+            dst[target + i] |= word << shift;
+            if (shift != 0 && target + i + 1 < dst.length) {
+                dst[target + i + 1] |= word >>> (64 - shift);
+            }
+        }
+    }
+
+    // Decode the header line, dropping a UTF-8 byte order mark and surrounding whitespace
+    static String[] parseHeader(ByteBuffer buffer, int end) {
+        int start = 0;
+        if (end >= 3 && (buffer.get(0) & 0xFF) == 0xEF && (buffer.get(1) & 0xFF) == 0xBB
+                && (buffer.get(2) & 0xFF) == 0xBF) {
+            start = 3;
+        }
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        String[] headers = new String(bytes, StandardCharsets.UTF_8).split(",");
+        for (int i = 0; i < headers.length; i++) {
+            headers[i] = headers[i].trim();
+        }
+        return headers;
+    }
+
+    // Position just after the first '\n' at or after from, or end if there is none
+    static int nextLineStart(ByteBuffer buffer, int from, int end) {
+        for (int pos = from; pos < end; pos++) {
+            if (buffer.get(pos) == '\n') {
+                return pos + 1;
+            }
+        }
+        return end;
+    }
+
+    static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    // Missing-value tokens as UTF-8 bytes, matched against a cell's trimmed bytes
+    static final class MissingTokens {
+        private final byte[][] tokens;
+
+        MissingTokens(Collection<String> tokens) {
+            this.tokens = new byte[tokens.size()][];
+            int i = 0;
+            for (String token : tokens) {
+                this.tokens[i++] = token.trim().getBytes(StandardCharsets.UTF_8);
+            }
+        }
+
+        boolean matches(ByteBuffer buffer, int from, int to) {
+            for (byte[] token : tokens) {
+                if (token.length == to - from && matchesAt(buffer, from, token)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean matchesAt(ByteBuffer buffer, int from, byte[] token) {
+            for (int i = 0; i < token.length; i++) {
+                if (buffer.get(from + i) != token[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    // Growable set of primitive columns filled by one parser thread from one or more ranges
+    static final class ColumnChunk {
+        final int columnCount;
+        double[][] values;
+        long[][] nulls;
+        final boolean[] integral;
+        final boolean[] hasValue;
+        int rows;
+
+        // Cells to hand to the listener, kept until parsing finishes so they can be reported in order
+        private final boolean recordIssues;
+        private long[] missingCells = new long[0];
+        private int missingCount;
+        private final List<long[]> malformedCells = new ArrayList<>();
+        private final List<String> malformedTexts = new ArrayList<>();
+
+        private final NumberDecoder decoder = new NumberDecoder();
+        private final MissingTokens missingTokens;
+
+        ColumnChunk(int columnCount, boolean recordIssues, MissingTokens missingTokens) {
+            this.columnCount = columnCount;
+            this.recordIssues = recordIssues;
+            this.missingTokens = missingTokens;
+            this.values = new double[columnCount][0];
+            this.nulls = new long[columnCount][0];
+            this.integral = new boolean[columnCount];
+            this.hasValue = new boolean[columnCount];
+            Arrays.fill(integral, true);
+        }
+
+        // Parse the complete lines in [start, end) of the buffer
+        void parse(ByteBuffer buffer, int start, int end) {
+            ensureCapacity(rows + countLines(buffer, start, end));
+            int pos = start;
+            while (pos < end) {
+                // Skip blank lines
+                int lineStart = pos;
+                while (pos < end && isBlank(buffer.get(pos))) {
+                    pos++;
+                }
+                if (pos == end) {
+                    break;
+                }
+                if (buffer.get(pos) == '\n') {
+                    pos++;
+                    continue;
+                }
+                pos = parseLine(buffer, lineStart, end);
+            }
+        }
+
+        // Parse one line starting at pos; returns the start of the next line
+        private int parseLine(ByteBuffer buffer, int pos, int end) {
+            int row = rows++;
+            int column = 0;
+            int cellStart = pos;
+            while (true) {
+                byte b = pos < end ? buffer.get(pos) : (byte) '\n';
+                if (b == ',' || b == '\n') {
+                    if (column < columnCount) {
+                        storeCell(buffer, row, column, cellStart, pos);
+                    }
+                    column++;
+                    pos++;
+                    cellStart = pos;
+                    if (b == '\n') {
+                        break;
+                    }
+                } else {
+                    pos++;
+                }
+            }
+            for (; column < columnCount; column++) {
+                setMissing(row, column); // Short row
+            }
+            return Math.min(pos, end);
+        }
+
+        private void storeCell(ByteBuffer buffer, int row, int column, int from, int to) {
+            while (from < to && isBlank(buffer.get(from))) {
+                from++;
+            }
+            while (to > from && isBlank(buffer.get(to - 1))) {
+                to--;
+            }
+            if (from == to || missingTokens.matches(buffer, from, to)) {
+                setMissing(row, column);
+            } else if (decoder.decode(buffer, from, to)) {
+                double value = decoder.value;
+                values[column][row] = value;
+                hasValue[column] = true;
+                if (integral[column] && (value != Math.rint(value) || Math.abs(value) > Integer.MAX_VALUE)) {
+                    integral[column] = false;
+                }
+            } else {
+                values[column][row] = Double.NaN;
+                nulls[column][row >>> 6] |= 1L << row;
+                if (recordIssues) {
+                    byte[] bytes = new byte[to - from];
+                    for (int i = 0; i < bytes.length; i++) {
+                        bytes[i] = buffer.get(from + i);
+                    }
+                    malformedCells.add(new long[] { row, column });
+                    malformedTexts.add(new String(bytes, StandardCharsets.UTF_8));
+                }
+            }
+        }
+
+        private void setMissing(int row, int column) {
+            values[column][row] = Double.NaN;
+            nulls[column][row >>> 6] |= 1L << row;
+            if (recordIssues) {
+                if (missingCount == missingCells.length) {
+                    missingCells = Arrays.copyOf(missingCells, Math.max(16, missingCount * 2));
+                }
+                missingCells[missingCount++] = (long) row * columnCount + column;
+            }
+        }
+
+        private static int countLines(ByteBuffer buffer, int start, int end) {
+            int lines = 0;
+            for (int pos = start; pos < end; pos++) {
+                if (buffer.get(pos) == '\n') {
+                    lines++;
+                }
+            }
+            if (end > start && buffer.get(end - 1) != '\n') {
+                lines++; // Last line without a line break
+            }
+            return lines;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (columnCount == 0 || values[0].length >= capacity) {
+                return;
+            }
+            for (int column = 0; column < columnCount; column++) {
+                values[column] = Arrays.copyOf(values[column], capacity);
+                nulls[column] = Arrays.copyOf(nulls[column], (capacity + 63) >>> 6);
+            }
+        }
+
+        // Hand the recorded cells to the listener; rowOffset is the table row of this chunk's first row
+        void report(ParseListener listener, int rowOffset) {
+            int malformed = 0;
+            for (int i = 0; i < missingCount || malformed < malformedCells.size();) {
+                long missingKey = i < missingCount ? missingCells[i] : Long.MAX_VALUE;
+                long malformedKey = Long.MAX_VALUE;
+                if (malformed < malformedCells.size()) {
+                    long[] cell = malformedCells.get(malformed);
+                    malformedKey = cell[0] * columnCount + cell[1];
+                }
+                if (missingKey < malformedKey) {
+                    listener.missingCell(rowOffset + (int) (missingKey / columnCount), (int) (missingKey % columnCount));
+                    i++;
+                } else {
+                    listener.malformedCell(rowOffset + (int) (malformedKey / columnCount),
+                            (int) (malformedKey % columnCount), malformedTexts.get(malformed));
+                    malformed++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package data;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+// Reproducible train/test splits expressed as row indexes into shared data, so no rows are copied.
+// Rows are put in a seeded random order by giving every row a SplitMix64 key computed from
+// (seed, row) alone and sorting the packed (key, row) pairs with Arrays.parallelSort; the order
+// therefore depends only on the seed and the row count, never on the number of cores. The first
+// trainFraction of that order is used for training, taken separately within each label value
+// when the split is stratified, so every class keeps its share in both sets.
+public class DataSplitter {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final long ROW_MASK = 0x7FFFFFFFL; // Low 31 bits of a packed pair hold the row
+
+    // Training and test rows of one split, both in increasing row order, plus a bitmap of the
+    // training rows (bit row & 63 of word row >>> 6)
+    public static class Split {
+        private final int[] trainRows;
+        private final int[] testRows;
+        private final long[] trainBitmap;
+
+        Split(long[] trainBitmap, int rows) {
+            this.trainBitmap = trainBitmap;
+            int trainCount = 0;
+            for (long word : trainBitmap) {
+                trainCount += Long.bitCount(word);
+            }
+            trainRows = new int[trainCount];
+            testRows = new int[rows - trainCount];
+            for (int row = 0, train = 0, test = 0; row < rows; row++) {
+                if (isTraining(row)) {
+                    trainRows[train++] = row;
+                } else {
+                    testRows[test++] = row;
+                }
+            }
+        }
+
+        // Shared arrays, not copies; callers must not modify them
+        public int[] getTrainRows() {
+            return trainRows;
+        }
+
+        public int[] getTestRows() {
+            return testRows;
+        }
+
+        public long[] getTrainBitmap() {
+            return trainBitmap;
+        }
+
+        public boolean isTraining(int row) {
+            return (trainBitmap[row >>> 6] & (1L << (row & 63))) != 0;
+        }
+
+        public int getTrainCount() {
+            return trainRows.length;
+        }
+
+        public int getTestCount() {
+            return testRows.length;
+        }
+    }
+
+    // Seeded random permutation of 0 .. rows - 1
+    public static int[] permutation(int rows, long seed) {
+        long[] packed = new long[rows];
+        IntStream.range(0, rows).parallel().forEach(row -> packed[row] = (mix(seed + GOLDEN_GAMMA * (row + 1L))
+                & ~ROW_MASK) | row);
+        Arrays.parallelSort(packed);
+        int[] order = new int[rows];
+        IntStream.range(0, rows).parallel().forEach(i -> order[i] = (int) (packed[i] & ROW_MASK));
+        return order;
+    }
+
+    // Put a random trainFraction of the rows (rounded) in the training set
+    public static Split split(int rows, double trainFraction, long seed) {
+        checkFraction(trainFraction);
+        int[] order = permutation(rows, seed);
+        long[] bitmap = new long[(rows + 63) >>> 6];
+        int trainCount = (int) Math.round(trainFraction * rows);
+        for (int i = 0; i < trainCount; i++) {
+            bitmap[order[i] >>> 6] |= 1L << (order[i] & 63);
+        }
+        return new Split(bitmap, rows);
+    }
+
+    // Put a random trainFraction (rounded) of the rows of each distinct label value in the
+    // training set; labels[row] is the row's class, e.g. a DesignMatrix target
+    public static Split stratified(double[] labels, double trainFraction, long seed) {
+        checkFraction(trainFraction);
+        int rows = labels.length;
+        DoubleLongHashMap ids = new DoubleLongHashMap();
+        int[] strata = new int[rows];
+        for (int row = 0; row < rows; row++) {
+            strata[row] = (int) ids.putIfAbsent(labels[row], ids.size());
+        }
+        int[] remaining = new int[ids.size()];
+        for (int stratum : strata) {
+            remaining[stratum]++;
+        }
+        for (int s = 0; s < remaining.length; s++) {
+            remaining[s] = (int) Math.round(trainFraction * remaining[s]);
+        }
+
+        int[] order = permutation(rows, seed);
+        long[] bitmap = new long[(rows + 63) >>> 6];
+        for (int row : order) {
+            if (remaining[strata[row]] > 0) {
+                remaining[strata[row]]--;
+                bitmap[row >>> 6] |= 1L << (row & 63);
+            }
+        }
+        return new Split(bitmap, rows);
+    }
+
+    private static void checkFraction(double trainFraction) {
+        if (!(trainFraction >= 0 && trainFraction <= 1)) {
+            throw new IllegalArgumentException("Training fraction must be between 0 and 1: " + trainFraction);
+        }
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
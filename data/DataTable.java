@@ -0,0 +1,256 @@
+package data;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+// Column-oriented, in-memory view of a CSV file. Every column is stored as a single
+// primitive array (int[] when all of its cells are whole numbers, double[] otherwise)
+// and looked up through the header index, so the file only has to be parsed once.
+// Missing cells are flagged in one packed null bitmap per column (bit row % 64 of word row / 64).
+public class DataTable {
+
+    public enum ColumnType {
+        INT, DOUBLE
+    }
+
+    private final String[] headers;
+    private final Map<String, Integer> headerIndex;
+    private final ColumnType[] types;
+    private final Object[] columns; // int[] or double[], one per header
+    private final long[][] nullBitmaps; // one bit per row, set when the cell is missing
+    private final double[][] widenedColumns; // lazily created double[] copies of int columns
+    private final int rowCount;
+    private volatile long modificationCount; // Incremented by every in-place change, see fill()
+
+    DataTable(String[] headers, ColumnType[] types, Object[] columns, long[][] nullBitmaps, int rowCount) {
+        if (headers.length != types.length || headers.length != columns.length
+                || headers.length != nullBitmaps.length) {
+            throw new IllegalArgumentException("Headers, types, columns and null bitmaps must have the same length.");
+        }
+        this.headers = headers;
+        this.types = types;
+        this.columns = columns;
+        this.nullBitmaps = nullBitmaps;
+        this.rowCount = rowCount;
+        this.widenedColumns = new double[headers.length][];
+        this.headerIndex = new HashMap<>();
+        for (int i = 0; i < headers.length; i++) {
+            headerIndex.put(headers[i], i);
+        }
+    }
+
+    // Load a CSV file (first line is the header) into a table, reusing the binary snapshot
+    // written by an earlier run when the file has not changed since
+    public static DataTable load(String filePath) throws IOException {
+        return TableCache.load(filePath);
+    }
+
+    // Parse a CSV file, reporting empty, placeholder and unparsable cells to the listener
+    public static DataTable load(String filePath, CsvParser.ParseListener listener) throws IOException {
+        return CsvParser.parse(filePath, listener);
+    }
+
+    // Parse a CSV file treating the given cell texts (e.g. "NA", "?") as missing, besides empty
+    // cells. The binary snapshot only covers the default tokens, so this always parses.
+    public static DataTable load(String filePath, Collection<String> missingTokens) throws IOException {
+        return CsvParser.parse(filePath, CsvParser.IGNORE,
+                Files.size(Paths.get(filePath)) >= CsvParser.PARALLEL_THRESHOLD, missingTokens);
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return headers.length;
+    }
+
+    public String[] getHeaders() {
+        return headers.clone();
+    }
+
+    public String getHeader(int column) {
+        return headers[column];
+    }
+
+    // Index of the column with the given header, or -1 if there is none
+    public int indexOf(String header) {
+        Integer index = headerIndex.get(header);
+        return index == null ? -1 : index;
+    }
+
+    // Index of the column with the given header, failing if there is none
+    public int columnIndex(String header) {
+        int index = indexOf(header);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown column: " + header);
+        }
+        return index;
+    }
+
+    public ColumnType getType(int column) {
+        return types[column];
+    }
+
+    // Backing array of an INT column; callers must not modify it
+    public int[] getIntColumn(int column) {
+        if (types[column] != ColumnType.INT) {
+            throw new IllegalArgumentException("Column " + headers[column] + " is not an integer column.");
+        }
+        return (int[]) columns[column];
+    }
+
+    // Values of any column as doubles; INT columns are widened once and cached.
+    // Callers must not modify the returned array.
+    public double[] getDoubleColumn(int column) {
+        if (types[column] == ColumnType.DOUBLE) {
+            return (double[]) columns[column];
+        }
+        synchronized (widenedColumns) {
+            double[] widened = widenedColumns[column];
+            if (widened == null) {
+                int[] ints = (int[]) columns[column];
+                widened = new double[rowCount];
+                for (int row = 0; row < rowCount; row++) {
+                    widened[row] = ints[row];
+                }
+                widenedColumns[column] = widened;
+            }
+            return widened;
+        }
+    }
+
+    public double getDouble(int column, int row) {
+        if (types[column] == ColumnType.INT) {
+            return ((int[]) columns[column])[row];
+        }
+        return ((double[]) columns[column])[row];
+    }
+
+    public int getInt(int column, int row) {
+        if (types[column] == ColumnType.INT) {
+            return ((int[]) columns[column])[row];
+        }
+        return (int) ((double[]) columns[column])[row];
+    }
+
+    // Packed null bitmap of a column; callers must not modify it
+    long[] nullBitmap(int column) {
+        return nullBitmaps[column];
+    }
+
+    // Whether the cell was empty, a placeholder or could not be parsed as a number.
+    // Missing cells read as NaN from DOUBLE columns and as 0 from INT columns.
+    public boolean isMissing(int column, int row) {
+        return (nullBitmaps[column][row >>> 6] & (1L << row)) != 0;
+    }
+
+    // Whether any cell of the column is missing
+    public boolean hasMissing(int column) {
+        for (long word : nullBitmaps[column]) {
+            if (word != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Independent copy of the table, for changes (such as imputation) that must not affect this one
+    public DataTable copy() {
+        Object[] copiedColumns = new Object[columns.length];
+        long[][] copiedBitmaps = new long[columns.length][];
+        for (int column = 0; column < columns.length; column++) {
+            copiedColumns[column] = types[column] == ColumnType.INT
+                    ? ((int[]) columns[column]).clone()
+                    : ((double[]) columns[column]).clone();
+            copiedBitmaps[column] = nullBitmaps[column].clone();
+        }
+        return new DataTable(headers, types.clone(), copiedColumns, copiedBitmaps, rowCount);
+    }
+
+    // Store values[i] in row rows[i] of the column and mark those cells present. Values are
+    // rounded to the nearest int in INT columns. Different columns may be filled concurrently.
+    void fill(int column, int[] rows, double[] values) {
+        if (types[column] == ColumnType.INT) {
+            int[] ints = (int[]) columns[column];
+            for (int i = 0; i < rows.length; i++) {
+                ints[rows[i]] = (int) Math.rint(values[i]);
+            }
+        } else {
+            double[] doubles = (double[]) columns[column];
+            for (int i = 0; i < rows.length; i++) {
+                doubles[rows[i]] = values[i];
+            }
+        }
+        long[] nulls = nullBitmaps[column];
+        for (int row : rows) {
+            nulls[row >>> 6] &= ~(1L << row);
+        }
+        synchronized (widenedColumns) {
+            widenedColumns[column] = null; // Widened again from the updated ints on next use
+            modificationCount++;
+        }
+    }
+
+    // Number of in-place changes made to the table so far, so values derived from it (such as
+    // cached rank indexes) can tell whether they are still current
+    public long getModificationCount() {
+        return modificationCount;
+    }
+
+    // Number of missing cells in the column, counted a bitmap word at a time
+    public int missingCount(int column) {
+        int count = 0;
+        for (long word : nullBitmaps[column]) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    // Bitmap of the rows that have a value in every given column (all columns when none are
+    // given): the OR of the columns' null bitmaps, inverted. Bits past the last row are clear.
+    public long[] completeCaseBitmap(int... columns) {
+        long[] complete = new long[(rowCount + 63) >>> 6];
+        if (columns.length == 0) {
+            columns = new int[headers.length];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = i;
+            }
+        }
+        for (int column : columns) {
+            long[] nulls = nullBitmaps[column];
+            for (int word = 0; word < complete.length; word++) {
+                complete[word] |= nulls[word];
+            }
+        }
+        for (int word = 0; word < complete.length; word++) {
+            complete[word] = ~complete[word];
+        }
+        if ((rowCount & 63) != 0) {
+            complete[complete.length - 1] &= (1L << rowCount) - 1;
+        }
+        return complete;
+    }
+
+    // Indexes, in ascending order, of the rows that have a value in every given column (all
+    // columns when none are given)
+    public int[] completeRows(int... columns) {
+        long[] complete = completeCaseBitmap(columns);
+        int count = 0;
+        for (long word : complete) {
+            count += Long.bitCount(word);
+        }
+        int[] rows = new int[count];
+        int i = 0;
+        for (int word = 0; word < complete.length; word++) {
+            for (long bits = complete[word]; bits != 0; bits &= bits - 1) {
+                rows[i++] = (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return rows;
+    }
+}
@@ -1,7 +1,5 @@
 package data;
 
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVRecord;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
@@ -10,18 +8,14 @@ import org.jfree.data.category.DefaultCategoryDataset;
 import org.jfree.data.general.DefaultPieDataset;
 import org.jfree.data.statistics.DefaultBoxAndWhiskerCategoryDataset;
 import org.jfree.data.xy.DefaultXYDataset;
-import org.jfree.data.statistics.BoxAndWhiskerCalculator;
 import org.jfree.data.statistics.BoxAndWhiskerItem;
 
 import javax.swing.*;
-import java.io.FileReader;
-import java.io.IOException;
-import java.io.Reader;
 import java.util.*;
 
 public class DataVisualization {
 
-    public static void visualizeData(List<String[]> data, String chartType) {
+    public static void visualizeData(DataTable data, String chartType) {
         if (chartType.equalsIgnoreCase("bar")) {
             visualizeBarChart(data, "Tumour Stage", "Average Protein1 by Tumour Stage");
         } else if (chartType.equalsIgnoreCase("line")) {
@@ -37,95 +31,94 @@ public class DataVisualization {
         }
     }
 
-    private static void visualizeBarChart(List<String[]> data, String category, String title) {
+    private static void visualizeBarChart(DataTable data, String category, String title) {
         DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-        Map<String, double[]> categoryMap = new HashMap<>();
-
-        for (String[] row : data) {
-            try {
-                double value = Double.parseDouble(row[2]); // Protein1
-                String categoryValue = row[6]; // Tumour_Stage
-                categoryMap.putIfAbsent(categoryValue, new double[2]);
-                categoryMap.get(categoryValue)[0] += value;
-                categoryMap.get(categoryValue)[1] += 1;
-            } catch (NumberFormatException e) {
-                System.err.println("Error parsing value to double: " + e.getMessage());
-            }
-        }
+        GroupBy.Result averages = new GroupBy(data, GroupBy.column(data, "Tumour_Stage"))
+                .aggregate(GroupBy.Aggregate.MEAN, "Protein1")
+                .run();
 
-        for (Map.Entry<String, double[]> entry : categoryMap.entrySet()) {
-            String categoryValue = entry.getKey();
-            double[] values = entry.getValue();
-            double average = values[1] > 0 ? values[0] / values[1] : 0;
-            dataset.addValue(average, "Protein1", categoryValue);
+        for (int group = 0; group < averages.getGroupCount(); group++) {
+            dataset.addValue(averages.getValue(group, 0), "Protein1", averages.getLabel(group));
         }
 
         JFreeChart chart = ChartFactory.createBarChart(title, category, "Average Protein1", dataset);
         displayChart(chart, title);
     }
 
-    private static void visualizeLineChart(List<String[]> data, String category, String title) {
+    private static void visualizeLineChart(DataTable data, String category, String title) {
         DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-        Map<String, double[]> categoryMap = new HashMap<>();
-
-        for (String[] row : data) {
-            try {
-                double value = Double.parseDouble(row[3]); // Protein2
-                String categoryValue = row[7]; // Histology
-                categoryMap.putIfAbsent(categoryValue, new double[2]);
-                categoryMap.get(categoryValue)[0] += value;
-                categoryMap.get(categoryValue)[1] += 1;
-            } catch (NumberFormatException e) {
-                System.err.println("Error parsing value to double: " + e.getMessage());
-            }
-        }
+        GroupBy.Result averages = new GroupBy(data, GroupBy.column(data, "Histology"))
+                .aggregate(GroupBy.Aggregate.MEAN, "Protein2")
+                .run();
 
-        for (Map.Entry<String, double[]> entry : categoryMap.entrySet()) {
-            String categoryValue = entry.getKey();
-            double[] values = entry.getValue();
-            double average = values[1] > 0 ? values[0] / values[1] : 0;
-            dataset.addValue(average, "Protein2", categoryValue);
+        for (int group = 0; group < averages.getGroupCount(); group++) {
+            dataset.addValue(averages.getValue(group, 0), "Protein2", averages.getLabel(group));
         }
 
         JFreeChart chart = ChartFactory.createLineChart(title, category, "Average Protein2", dataset);
         displayChart(chart, title);
     }
 
-    private static void visualizePieChart(List<String[]> data, String category, String title) {
+    private static void visualizePieChart(DataTable data, String category, String title) {
         DefaultPieDataset dataset = new DefaultPieDataset();
-        Map<String, Integer> categoryMap = new HashMap<>();
 
-        for (String[] row : data) {
-            String categoryValue = row[11]; // Surgery_type
-            categoryMap.put(categoryValue, categoryMap.getOrDefault(categoryValue, 0) + 1);
+        int categoryColumn = data.columnIndex("Surgery_type");
+        long missing = 0;
+        if (data.getType(categoryColumn) == DataTable.ColumnType.INT) {
+            int[] values = data.getIntColumn(categoryColumn);
+            IntLongHashMap counts = new IntLongHashMap();
+            for (int row = 0; row < data.getRowCount(); row++) {
+                if (data.isMissing(categoryColumn, row)) {
+                    missing++;
+                } else {
+                    counts.increment(values[row]);
+                }
+            }
+            for (int value : counts.sortedKeys()) {
+                dataset.setValue(String.valueOf(value), counts.get(value));
+            }
+        } else {
+            double[] values = data.getDoubleColumn(categoryColumn);
+            DoubleLongHashMap counts = new DoubleLongHashMap();
+            for (int row = 0; row < data.getRowCount(); row++) {
+                if (data.isMissing(categoryColumn, row)) {
+                    missing++;
+                } else {
+                    counts.increment(values[row]);
+                }
+            }
+            for (double value : counts.sortedKeys()) {
+                dataset.setValue(String.valueOf(value), counts.get(value));
+            }
         }
-
-        for (Map.Entry<String, Integer> entry : categoryMap.entrySet()) {
-            dataset.setValue(entry.getKey(), entry.getValue());
+        if (missing > 0) {
+            dataset.setValue("", missing);
         }
 
         JFreeChart chart = ChartFactory.createPieChart(title, dataset);
         displayChart(chart, title);
     }
 
-    private static void visualizeScatterPlot(List<String[]> data, String xLabel, String yLabel, String title) {
+    private static void visualizeScatterPlot(DataTable data, String xLabel, String yLabel, String title) {
         DefaultXYDataset dataset = new DefaultXYDataset();
-        List<double[]> points = new ArrayList<>();
-
-        for (String[] row : data) {
-            try {
-                double xValue = Double.parseDouble(row[0]); // Age
-                double yValue = Double.parseDouble(row[4]); // Protein3
-                points.add(new double[] { xValue, yValue });
-            } catch (NumberFormatException e) {
-                System.err.println("Error parsing value to double: " + e.getMessage());
+        int xColumn = data.columnIndex("Age");
+        int yColumn = data.columnIndex("Protein3");
+        double[] xValues = data.getDoubleColumn(xColumn);
+        double[] yValues = data.getDoubleColumn(yColumn);
+
+        int pointCount = 0;
+        double[][] dataPoints = new double[2][data.getRowCount()];
+        for (int row = 0; row < data.getRowCount(); row++) {
+            if (data.isMissing(xColumn, row) || data.isMissing(yColumn, row)) {
+                continue;
             }
+            dataPoints[0][pointCount] = xValues[row];
+            dataPoints[1][pointCount] = yValues[row];
+            pointCount++;
         }
-
-        double[][] dataPoints = new double[2][points.size()];
-        for (int i = 0; i < points.size(); i++) {
-            dataPoints[0][i] = points.get(i)[0];
-            dataPoints[1][i] = points.get(i)[1];
+        if (pointCount < data.getRowCount()) {
+            dataPoints[0] = Arrays.copyOf(dataPoints[0], pointCount);
+            dataPoints[1] = Arrays.copyOf(dataPoints[1], pointCount);
         }
 
         dataset.addSeries("Age vs Protein3", dataPoints);
@@ -134,25 +127,26 @@ public class DataVisualization {
         displayChart(chart, title);
     }
 
-    private static void visualizeBoxPlot(List<String[]> data, String category, String title) {
+    private static void visualizeBoxPlot(DataTable data, String category, String title) {
         DefaultBoxAndWhiskerCategoryDataset dataset = new DefaultBoxAndWhiskerCategoryDataset();
         Map<String, List<Double>> categoryMap = new HashMap<>();
 
-        for (String[] row : data) {
-            try {
-                double value = Double.parseDouble(row[5]); // Protein4
-                String categoryValue = row[8]; // ER status
-                categoryMap.putIfAbsent(categoryValue, new ArrayList<>());
-                categoryMap.get(categoryValue).add(value);
-            } catch (NumberFormatException e) {
-                System.err.println("Error parsing value to double: " + e.getMessage());
+        int valueColumn = data.columnIndex("Protein4");
+        int categoryColumn = data.columnIndex("ER status");
+        double[] columnValues = data.getDoubleColumn(valueColumn);
+        for (int row = 0; row < data.getRowCount(); row++) {
+            if (data.isMissing(valueColumn, row) || data.isMissing(categoryColumn, row)) {
+                continue;
             }
+            String categoryValue = categoryLabel(data, categoryColumn, row);
+            categoryMap.putIfAbsent(categoryValue, new ArrayList<>());
+            categoryMap.get(categoryValue).add(columnValues[row]);
         }
 
         for (Map.Entry<String, List<Double>> entry : categoryMap.entrySet()) {
             String categoryValue = entry.getKey();
             List<Double> values = entry.getValue();
-            BoxAndWhiskerItem item = BoxAndWhiskerCalculator.calculateBoxAndWhiskerStatistics(values);
+            BoxAndWhiskerItem item = boxAndWhiskerItem(values);
             dataset.add(item, "Protein4", categoryValue);
         }
 
@@ -160,6 +154,53 @@ public class DataVisualization {
         displayChart(chart, title);
     }
 
+    // Box plot statistics computed the way JFreeChart's BoxAndWhiskerCalculator does (Tukey's
+    // hinges, regular values within 1.5 IQR of the box, far outliers beyond 2 IQR), but with the
+    // hinges found by selection on a primitive copy instead of sorting the boxed list
+    private static BoxAndWhiskerItem boxAndWhiskerItem(List<Double> values) {
+        double[] array = new double[values.size()];
+        double mean = 0;
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+            mean += array[i];
+        }
+        mean /= array.length;
+        double[] hinges = Quantiles.hinges(array);
+        double q1 = hinges[0];
+        double q3 = hinges[2];
+        double interQuartileRange = q3 - q1;
+        double upperOutlierThreshold = q3 + interQuartileRange * 1.5;
+        double lowerOutlierThreshold = q1 - interQuartileRange * 1.5;
+        double upperFaroutThreshold = q3 + interQuartileRange * 2.0;
+        double lowerFaroutThreshold = q1 - interQuartileRange * 2.0;
+
+        double minRegularValue = Double.POSITIVE_INFINITY;
+        double maxRegularValue = Double.NEGATIVE_INFINITY;
+        double minOutlier = Double.POSITIVE_INFINITY;
+        double maxOutlier = Double.NEGATIVE_INFINITY;
+        List<Double> outliers = new ArrayList<>();
+        for (double value : array) {
+            if (value > upperOutlierThreshold) {
+                outliers.add(value);
+                if (value > maxOutlier && value <= upperFaroutThreshold) {
+                    maxOutlier = value;
+                }
+            } else if (value < lowerOutlierThreshold) {
+                outliers.add(value);
+                if (value < minOutlier && value >= lowerFaroutThreshold) {
+                    minOutlier = value;
+                }
+            } else {
+                minRegularValue = Math.min(minRegularValue, value);
+                maxRegularValue = Math.max(maxRegularValue, value);
+            }
+            minOutlier = Math.min(minOutlier, minRegularValue);
+            maxOutlier = Math.max(maxOutlier, maxRegularValue);
+        }
+        return new BoxAndWhiskerItem(mean, hinges[1], q1, q3, minRegularValue, maxRegularValue, minOutlier,
+                maxOutlier, outliers);
+    }
+
     private static void displayChart(JFreeChart chart, String title) {
         SwingUtilities.invokeLater(() -> {
             JFrame frame = new JFrame(title);
@@ -172,21 +213,15 @@ public class DataVisualization {
         });
     }
 
-    public static List<String[]> readCSV(String filePath) {
-        List<String[]> data = new ArrayList<>();
-        try (Reader in = new FileReader(filePath)) {
-            Iterable<CSVRecord> records = CSVFormat.DEFAULT.withFirstRecordAsHeader().parse(in);
-            for (CSVRecord record : records) {
-                String[] row = new String[record.size()];
-                for (int i = 0; i < record.size(); i++) {
-                    row[i] = record.get(i);
-                }
-                data.add(row);
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+    // Label used for a categorical cell in chart legends and axes
+    private static String categoryLabel(DataTable data, int column, int row) {
+        if (data.isMissing(column, row)) {
+            return "";
+        }
+        if (data.getType(column) == DataTable.ColumnType.INT) {
+            return String.valueOf(data.getInt(column, row));
         }
-        return data;
+        return String.valueOf(data.getDouble(column, row));
     }
 
 }
\ No newline at end of file
@@ -1,96 +1,187 @@
 package data;
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class DescriptiveStatistics {
+    private static final int COUNT_CHUNK_SIZE = 1 << 16; // Values counted per task when counting in parallel
+
     public static void main(String[] args) {
         // Example CSV file path
         String csvFile = "BRCA.csv";
 
-        // Read CSV data and calculate statistics
         try {
-            List<String[]> dataset = readCSV(csvFile);
-            if (dataset != null && !dataset.isEmpty()) {
-                // Identify numerical columns
-                List<Integer> numericalColumns = identifyNumericalColumns(dataset);
-
-                // Calculate and print statistics for each numerical column
-                for (int columnIndex : numericalColumns) {
-                    List<Double> columnData = extractColumn(dataset, columnIndex);
-                    System.out.println("Statistics for Column " + columnIndex + ":");
-                    printStatistics(columnData);
+            if (args.length > 0 && args[0].equals("--stream")) {
+                runStreaming(args.length > 1 ? args[1] : csvFile);
+            } else {
+                run(DataTable.load(csvFile));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Calculate and print statistics for the numerical columns of an already loaded table
+    public static void run(DataTable dataset) {
+        if (dataset.getRowCount() == 0) {
+            System.out.println("No data found in the CSV file.");
+            return;
+        }
+
+        // Identify numerical columns and summarize the whole table in one parallel scan
+        List<Integer> numericalColumns = identifyNumericalColumns(dataset);
+        ColumnSummary[] summaries = summarize(dataset);
+
+        // Print statistics for each numerical column
+        for (int columnIndex : numericalColumns) {
+            System.out.println("Statistics for Column " + columnIndex + ":");
+            printStatistics(summaries[columnIndex], nonMissingValues(dataset, columnIndex));
+        }
+
+        // Print correlations between numerical columns, all taken from one Gram-matrix pass over
+        // the rows that have a value in every column
+        CorrelationMatrix correlations = CorrelationCalculator.calculateCorrelations(dataset);
+        for (int i = 0; i < numericalColumns.size(); i++) {
+            for (int j = i + 1; j < numericalColumns.size(); j++) {
+                double correlation = correlations.get(numericalColumns.get(i), numericalColumns.get(j));
+                if (!Double.isNaN(correlation)) {
+                    System.out.println("Correlation between Column " + numericalColumns.get(i) + " and Column " + numericalColumns.get(j) + ": " + correlation);
+                } else {
+                    System.out.println("Correlation between Column " + numericalColumns.get(i) + " and Column " + numericalColumns.get(j) + ": Cannot be calculated (constant values in one of the columns).");
                 }
+            }
+        }
+    }
 
-                // Calculate and print correlations between numerical columns
-                for (int i = 0; i < numericalColumns.size(); i++) {
-                    for (int j = i + 1; j < numericalColumns.size(); j++) {
-                        List<Double> columnData1 = extractColumn(dataset, numericalColumns.get(i));
-                        List<Double> columnData2 = extractColumn(dataset, numericalColumns.get(j));
-                        Double correlation = calculateCorrelation(columnData1, columnData2);
-                        if (correlation != null) {
-                            System.out.println("Correlation between Column " + numericalColumns.get(i) + " and Column " + numericalColumns.get(j) + ": " + correlation);
-                        } else {
-                            System.out.println("Correlation between Column " + numericalColumns.get(i) + " and Column " + numericalColumns.get(j) + ": Cannot be calculated (constant values in one of the columns).");
-                        }
+    // Print approximate order statistics for every column of a CSV file that may not fit in
+    // memory, reading it in batches into one quantile sketch and one frequent-items summary per
+    // column (a few KB each)
+    public static void runStreaming(String filePath) throws IOException {
+        try (CsvBatchReader reader = new CsvBatchReader(filePath, 4096)) {
+            int columns = reader.getColumnCount();
+            KllSketch[] quantiles = new KllSketch[columns];
+            FrequentItemsSketch[] frequencies = new FrequentItemsSketch[columns];
+            for (int column = 0; column < columns; column++) {
+                quantiles[column] = new KllSketch();
+                frequencies[column] = new FrequentItemsSketch();
+            }
+            int rows;
+            while ((rows = reader.next()) > 0) {
+                double[] values = reader.values();
+                for (int row = 0, offset = 0; row < rows; row++, offset += columns) {
+                    for (int column = 0; column < columns; column++) {
+                        quantiles[column].update(values[offset + column]);
+                        frequencies[column].update(values[offset + column]);
                     }
                 }
-            } else {
-                System.out.println("No data found in the CSV file.");
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+
+            String[] headers = reader.getHeaders();
+            for (int column = 0; column < columns; column++) {
+                if (quantiles[column].isEmpty()) {
+                    continue;
+                }
+                double[] quartiles = quantiles[column].getQuantiles(new double[]{0.25, 0.5, 0.75});
+                System.out.println("Approximate statistics for Column " + column + " (" + headers[column] + "):");
+                System.out.println("Count: " + quantiles[column].getCount());
+                System.out.println("Min: " + quantiles[column].getMin());
+                System.out.println("Max: " + quantiles[column].getMax());
+                System.out.println("Median: " + quartiles[1]);
+                System.out.println("Mode: " + frequencies[column].getMode());
+                System.out.println("Q1 (25th percentile): " + quartiles[0]);
+                System.out.println("Q3 (75th percentile): " + quartiles[2]);
+            }
         }
     }
 
-    // Read CSV file and parse data into a list of string arrays
-    public static List<String[]> readCSV(String csvFile) throws IOException {
-        List<String[]> dataset = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(csvFile))) {
-            String line;
-            // Read the header line
-            br.readLine();
-            while ((line = br.readLine()) != null) {
-                String[] row = line.split(","); // Assuming CSV delimiter is comma
-                dataset.add(row);
+    // Summaries of every column of the table, with the columns processed in parallel
+    public static ColumnSummary[] summarize(DataTable dataset) {
+        return IntStream.range(0, dataset.getColumnCount()).parallel()
+                .mapToObj(column -> summarize(dataset, column))
+                .toArray(ColumnSummary[]::new);
+    }
+
+    // Count, range, sum and the first four moments of a column's non-missing values in a single
+    // pass. The central moments are updated incrementally (Welford, extended to the third and
+    // fourth moments by Terriberry), which avoids the cancellation of sum-of-powers formulas.
+    public static ColumnSummary summarize(DataTable dataset, int column) {
+        double[] values = dataset.getDoubleColumn(column);
+        long[] nulls = dataset.nullBitmap(column);
+        int rows = dataset.getRowCount();
+        long count = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double sum = 0;
+        double mean = 0;
+        double m2 = 0;
+        double m3 = 0;
+        double m4 = 0;
+        for (int row = 0; row < rows; row++) {
+            if ((nulls[row >>> 6] & (1L << row)) != 0) {
+                continue;
             }
+            double value = values[row];
+            long previous = count++;
+            double delta = value - mean;
+            double deltaN = delta / count;
+            double deltaN2 = deltaN * deltaN;
+            double term = delta * deltaN * previous;
+            mean += deltaN;
+            m4 += term * deltaN2 * (count * count - 3 * count + 3) + 6 * deltaN2 * m2 - 4 * deltaN * m3;
+            m3 += term * deltaN * (count - 2) - 3 * deltaN * m2;
+            m2 += term;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        String name = dataset.getHeader(column);
+        if (count == 0) {
+            return new ColumnSummary(name, 0, rows, Double.NaN, Double.NaN, 0, Double.NaN, Double.NaN, Double.NaN,
+                    Double.NaN);
         }
-        return dataset;
+        double skewness = m2 > 0 ? Math.sqrt(count) * m3 / Math.pow(m2, 1.5) : Double.NaN;
+        double kurtosis = m2 > 0 ? count * m4 / (m2 * m2) - 3 : Double.NaN;
+        return new ColumnSummary(name, count, rows - count, min, max, sum, mean, m2 / count, skewness, kurtosis);
     }
 
-    // Identify numerical columns in the dataset
-    public static List<Integer> identifyNumericalColumns(List<String[]> dataset) {
+    // Identify numerical columns in the dataset (those with a value in the first row)
+    public static List<Integer> identifyNumericalColumns(DataTable dataset) {
         List<Integer> numericalColumns = new ArrayList<>();
-        for (int i = 0; i < dataset.get(0).length; i++) {
-            try {
-                Double.parseDouble(dataset.get(0)[i]);
+        for (int i = 0; i < dataset.getColumnCount(); i++) {
+            if (!dataset.isMissing(i, 0)) {
                 numericalColumns.add(i);
-            } catch (NumberFormatException e) {
-                // Not a numerical column
             }
         }
         return numericalColumns;
     }
 
-    // Extract data from a specific column within the dataset
-    public static List<Double> extractColumn(List<String[]> dataset, int columnIndex) {
+    // Extract the non-missing values of a specific column within the dataset
+    public static List<Double> extractColumn(DataTable dataset, int columnIndex) {
         List<Double> columnData = new ArrayList<>();
-        for (String[] row : dataset) {
-            if (columnIndex < row.length) {
-                String columnValue = row[columnIndex];
-                try {
-                    double value = Double.parseDouble(columnValue);
-                    columnData.add(value);
-                } catch (NumberFormatException e) {
-                    // Handle invalid or non-numeric values in the column
-                    System.out.println("Invalid value in the column: " + columnValue);
-                }
+        double[] values = dataset.getDoubleColumn(columnIndex);
+        for (int row = 0; row < dataset.getRowCount(); row++) {
+            if (!dataset.isMissing(columnIndex, row)) {
+                columnData.add(values[row]);
             }
         }
         return columnData;
     }
 
+    // The non-missing values of a column, in row order, as a new array
+    public static double[] nonMissingValues(DataTable dataset, int columnIndex) {
+        double[] values = dataset.getDoubleColumn(columnIndex);
+        long[] nulls = dataset.nullBitmap(columnIndex);
+        double[] present = new double[dataset.getRowCount() - dataset.missingCount(columnIndex)];
+        for (int row = 0, next = 0; row < values.length; row++) {
+            if ((nulls[row >>> 6] & (1L << row)) == 0) {
+                present[next++] = values[row];
+            }
+        }
+        return present;
+    }
+
     // Method to calculate the mean of a list of numbers
     public static double calculateMean(List<Double> data) {
         if (data.isEmpty()) {
@@ -103,40 +194,58 @@ public class DescriptiveStatistics {
         return sum / data.size();
     }
 
-    // Method to calculate the median of a list of numbers
+    // Method to calculate the median of a list of numbers (the list is left in its original order)
     public static double calculateMedian(List<Double> data) {
         if (data.isEmpty()) {
             return 0; // or any other default value
         }
-        data.sort(null); // Sort the data in ascending order
-        int size = data.size();
-        if (size % 2 == 1) {
-            return data.get(size / 2);
-        } else {
-            return (data.get(size / 2 - 1) + data.get(size / 2)) / 2.0;
-        }
+        return Quantiles.median(toArray(data));
     }
 
     // Method to calculate the mode of a list of numbers
     public static double calculateMode(List<Double> data) {
-        if (data.isEmpty()) {
+        return calculateMode(toArray(data));
+    }
+
+    // Method to calculate the mode of an array of numbers; among equally frequent values the
+    // smallest is returned
+    public static double calculateMode(double[] data) {
+        if (data.length == 0) {
             return 0; // or any other default value
         }
-        Map<Double, Integer> frequencyMap = new HashMap<>();
-        for (double num : data) {
-            frequencyMap.put(num, frequencyMap.getOrDefault(num, 0) + 1);
-        }
-        int maxFrequency = 0;
+        DoubleLongHashMap frequencies = countValues(data);
         double mode = 0;
-        for (Map.Entry<Double, Integer> entry : frequencyMap.entrySet()) {
-            if (entry.getValue() > maxFrequency) {
-                maxFrequency = entry.getValue();
-                mode = entry.getKey();
+        long maxFrequency = 0;
+        for (double value : frequencies.sortedKeys()) {
+            long frequency = frequencies.get(value);
+            if (frequency > maxFrequency) {
+                maxFrequency = frequency;
+                mode = value;
             }
         }
         return mode;
     }
 
+    // Occurrences of each distinct value. Large arrays are counted in fixed-size chunks in
+    // parallel, one primitive map per chunk, and the maps are merged pairwise.
+    public static DoubleLongHashMap countValues(double[] data) {
+        int chunks = (data.length + COUNT_CHUNK_SIZE - 1) / COUNT_CHUNK_SIZE;
+        IntStream chunkRange = IntStream.range(0, chunks);
+        if (chunks > 1) {
+            chunkRange = chunkRange.parallel();
+        }
+        List<DoubleLongHashMap> counts = chunkRange.mapToObj(chunk -> {
+            int from = chunk * COUNT_CHUNK_SIZE;
+            int to = Math.min(from + COUNT_CHUNK_SIZE, data.length);
+            DoubleLongHashMap frequencies = new DoubleLongHashMap(Math.min(to - from, 1024));
+            for (int i = from; i < to; i++) {
+                frequencies.increment(data[i]);
+            }
+            return frequencies;
+        }).collect(Collectors.toList());
+        return DoubleLongHashMap.mergeAll(counts);
+    }
+
     // Method to calculate the standard deviation of a list of numbers
     public static double calculateStandardDeviation(List<Double> data) {
         if (data.isEmpty()) {
@@ -168,44 +277,61 @@ public class DescriptiveStatistics {
         if (data1.isEmpty() || data2.isEmpty() || data1.size() != data2.size()) {
             return null; // or any other default value
         }
-        double mean1 = calculateMean(data1);
-        double mean2 = calculateMean(data2);
-        double sumXY = 0;
-        double sumX2 = 0;
-        double sumY2 = 0;
+        CorrelationAccumulator accumulator = new CorrelationAccumulator(new String[]{"data1", "data2"});
+        double[] pair = new double[2];
         for (int i = 0; i < data1.size(); i++) {
-            double x = data1.get(i);
-            double y = data2.get(i);
-            sumXY += (x - mean1) * (y - mean2);
-            sumX2 += Math.pow(x - mean1, 2);
-            sumY2 += Math.pow(y - mean2, 2);
+            pair[0] = data1.get(i);
+            pair[1] = data2.get(i);
+            accumulator.add(pair);
         }
-        double stdX = Math.sqrt(sumX2 / data1.size());
-        double stdY = Math.sqrt(sumY2 / data2.size());
 
-        if (stdX == 0 || stdY == 0) {
+        if (accumulator.getVariance(0) == 0 || accumulator.getVariance(1) == 0) {
             return null; // correlation is not defined when standard deviation is zero
         }
 
-        return sumXY / Math.sqrt(sumX2 * sumY2);
+        return accumulator.getCorrelation(0, 1);
+    }
+
+    // Method to calculate the Spearman rank correlation between two lists of numbers
+    public static Double calculateSpearmanCorrelation(List<Double> data1, List<Double> data2) {
+        if (data1.isEmpty() || data2.isEmpty() || data1.size() != data2.size()) {
+            return null; // or any other default value
+        }
+        return calculateCorrelation(toRankList(data1), toRankList(data2));
+    }
+
+    // Method to calculate Kendall's tau-b between two lists of numbers
+    public static Double calculateKendallCorrelation(List<Double> data1, List<Double> data2) {
+        if (data1.isEmpty() || data2.isEmpty() || data1.size() != data2.size()) {
+            return null; // or any other default value
+        }
+        double tau = CorrelationCalculator.kendallTau(RankIndex.of(toArray(data1)), RankIndex.of(toArray(data2)));
+        return Double.isNaN(tau) ? null : tau;
+    }
+
+    private static List<Double> toRankList(List<Double> data) {
+        List<Double> ranks = new ArrayList<>(data.size());
+        for (double rank : RankIndex.of(toArray(data)).getRanks()) {
+            ranks.add(rank);
+        }
+        return ranks;
+    }
+
+    private static double[] toArray(List<Double> data) {
+        double[] values = new double[data.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = data.get(i);
+        }
+        return values;
     }
 
-    // Method to calculate quartiles of a list of numbers
+    // Method to calculate quartiles of a list of numbers: the medians of the lower and upper
+    // halves, excluding the middle value for an odd count (the list is left in its original order)
     public static double[] calculateQuartiles(List<Double> data) {
         if (data.isEmpty()) {
             return new double[]{0, 0, 0}; // or any other default value
         }
-        data.sort(null); // Sort the data in ascending order
-        int size = data.size();
-        double[] quartiles = new double[3];
-        quartiles[0] = calculateMedian(data.subList(0, size / 2)); // Q1 (25th percentile)
-        quartiles[1] = calculateMedian(data); // Q2 (50th percentile, median)
-        if (size % 2 == 0) {
-            quartiles[2] = calculateMedian(data.subList(size / 2, size)); // Q3 (75th percentile)
-        } else {
-            quartiles[2] = calculateMedian(data.subList(size / 2 + 1, size)); // Q3 (75th percentile)
-        }
-        return quartiles;
+        return Quantiles.quartiles(toArray(data));
     }
 
     // Method to print statistics
@@ -220,4 +346,24 @@ public class DescriptiveStatistics {
         System.out.println("Q2 (50th percentile, median): " + quartiles[1]);
         System.out.println("Q3 (75th percentile): " + quartiles[2]);
     }
+
+    // Method to print statistics from a precomputed summary; values (the column's non-missing
+    // values) are only needed for the order statistics (median, mode and quartiles)
+    public static void printStatistics(ColumnSummary summary, double[] values) {
+        double[] quartiles = Quantiles.quartiles(values);
+        System.out.println("Count: " + summary.getCount());
+        System.out.println("Mean: " + summary.getMean());
+        System.out.println("Median: " + quartiles[1]);
+        System.out.println("Mode: " + calculateMode(values));
+        System.out.println("Standard Deviation: " + summary.getStandardDeviation());
+        System.out.println("Variance: " + summary.getVariance());
+        System.out.println("Min: " + summary.getMin());
+        System.out.println("Max: " + summary.getMax());
+        System.out.println("Sum: " + summary.getSum());
+        System.out.println("Skewness: " + summary.getSkewness());
+        System.out.println("Kurtosis: " + summary.getKurtosis());
+        System.out.println("Q1 (25th percentile): " + quartiles[0]);
+        System.out.println("Q2 (50th percentile, median): " + quartiles[1]);
+        System.out.println("Q3 (75th percentile): " + quartiles[2]);
+    }
 }
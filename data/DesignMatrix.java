@@ -0,0 +1,148 @@
+package data;
+
+import java.util.Arrays;
+
+// Dense numeric training data: a row-major rows x features array of feature values plus a
+// target vector. Row r, feature j is x[r * features + j].
+public class DesignMatrix {
+    private final String[] featureNames;
+    private final String targetName;
+    private final double[] x;
+    private final double[] y;
+    private final int rows;
+    private final int features;
+
+    DesignMatrix(String[] featureNames, String targetName, double[] x, double[] y, int rows) {
+        if (x.length != (long) rows * featureNames.length || y.length != rows) {
+            throw new IllegalArgumentException("Matrix dimensions do not match " + rows + " rows of "
+                    + featureNames.length + " features.");
+        }
+        this.featureNames = featureNames;
+        this.targetName = targetName;
+        this.x = x;
+        this.y = y;
+        this.rows = rows;
+        this.features = featureNames.length;
+    }
+
+    // Build a matrix with every other column of the table as a feature, keeping only the rows
+    // that have no missing values
+    public static DesignMatrix fromTable(DataTable table, String targetName) {
+        int target = table.columnIndex(targetName);
+        int[] featureColumns = new int[table.getColumnCount() - 1];
+        String[] featureNames = new String[featureColumns.length];
+        for (int column = 0, j = 0; column < table.getColumnCount(); column++) {
+            if (column != target) {
+                featureColumns[j] = column;
+                featureNames[j] = table.getHeader(column);
+                j++;
+            }
+        }
+
+        int[] completeRows = table.completeRows();
+        int rows = completeRows.length;
+        if ((long) rows * featureColumns.length > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many cells for a single design matrix: "
+                    + rows + " rows of " + featureColumns.length + " features.");
+        }
+
+        double[] x = new double[rows * featureColumns.length];
+        double[] y = new double[rows];
+        for (int j = 0; j < featureColumns.length; j++) {
+            double[] values = table.getDoubleColumn(featureColumns[j]);
+            for (int r = 0; r < rows; r++) {
+                x[r * featureColumns.length + j] = values[completeRows[r]];
+            }
+        }
+        double[] targetValues = table.getDoubleColumn(target);
+        for (int r = 0; r < rows; r++) {
+            y[r] = targetValues[completeRows[r]];
+        }
+        return new DesignMatrix(featureNames, targetName, x, y, rows);
+    }
+
+    // Build a matrix like fromTable, but keeping every row that has a target value; missing
+    // feature values are stored as NaN, to be filled by an Imputer fitted on the training rows
+    public static DesignMatrix fromTableWithMissing(DataTable table, String targetName) {
+        int target = table.columnIndex(targetName);
+        int[] featureColumns = new int[table.getColumnCount() - 1];
+        String[] featureNames = new String[featureColumns.length];
+        for (int column = 0, j = 0; column < table.getColumnCount(); column++) {
+            if (column != target) {
+                featureColumns[j] = column;
+                featureNames[j] = table.getHeader(column);
+                j++;
+            }
+        }
+
+        int[] targetRows = table.completeRows(target);
+        int rows = targetRows.length;
+        if ((long) rows * featureColumns.length > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many cells for a single design matrix: "
+                    + rows + " rows of " + featureColumns.length + " features.");
+        }
+
+        double[] x = new double[rows * featureColumns.length];
+        double[] y = new double[rows];
+        for (int j = 0; j < featureColumns.length; j++) {
+            int column = featureColumns[j];
+            double[] values = table.getDoubleColumn(column);
+            boolean hasMissing = table.hasMissing(column);
+            for (int r = 0; r < rows; r++) {
+                int row = targetRows[r];
+                x[r * featureColumns.length + j] = hasMissing && table.isMissing(column, row) ? Double.NaN : values[row];
+            }
+        }
+        double[] targetValues = table.getDoubleColumn(target);
+        for (int r = 0; r < rows; r++) {
+            y[r] = targetValues[targetRows[r]];
+        }
+        return new DesignMatrix(featureNames, targetName, x, y, rows);
+    }
+
+    // Copy of the given rows, in the given order
+    public DesignMatrix select(int[] rowIndexes) {
+        double[] selectedX = new double[rowIndexes.length * features];
+        double[] selectedY = new double[rowIndexes.length];
+        for (int i = 0; i < rowIndexes.length; i++) {
+            System.arraycopy(x, rowIndexes[i] * features, selectedX, i * features, features);
+            selectedY[i] = y[rowIndexes[i]];
+        }
+        return new DesignMatrix(featureNames, targetName, selectedX, selectedY, rowIndexes.length);
+    }
+
+    public int getRowCount() {
+        return rows;
+    }
+
+    public int getFeatureCount() {
+        return features;
+    }
+
+    public String[] getFeatureNames() {
+        return featureNames.clone();
+    }
+
+    public String getFeatureName(int feature) {
+        return featureNames[feature];
+    }
+
+    public String getTargetName() {
+        return targetName;
+    }
+
+    // Row-major feature values; modified in place by standardization
+    public double[] getX() {
+        return x;
+    }
+
+    public double[] getY() {
+        return y;
+    }
+
+    @Override
+    public String toString() {
+        return "DesignMatrix[" + rows + " x " + features + ", features=" + Arrays.toString(featureNames)
+                + ", target=" + targetName + "]";
+    }
+}
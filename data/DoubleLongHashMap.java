@@ -0,0 +1,197 @@
+package data;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+// Open-addressing hash map from double to long, for counting values without boxing. Keys are
+// compared like Double.equals (by bit pattern, so -0.0 and 0.0 are distinct and NaN equals NaN).
+// Linear probing over power-of-two tables kept at most half full. Not thread-safe: count into
+// one map per thread and combine them with merge or mergeAll.
+public class DoubleLongHashMap {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private long[] values;
+    private boolean[] used;
+    private int size;
+    private int mask;
+
+    public DoubleLongHashMap() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    // Map sized to hold expectedSize keys without rehashing
+    public DoubleLongHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    // Add delta to the value of key (absent keys start at 0) and return the new value
+    public long addTo(double key, long delta) {
+        long bits = Double.doubleToLongBits(key);
+        int slot = slot(bits);
+        while (used[slot]) {
+            if (keys[slot] == bits) {
+                return values[slot] += delta;
+            }
+            slot = (slot + 1) & mask;
+        }
+        used[slot] = true;
+        keys[slot] = bits;
+        values[slot] = delta;
+        if (++size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        return delta;
+    }
+
+    // Value of key, first storing value for it if the key is absent
+    public long putIfAbsent(double key, long value) {
+        long bits = Double.doubleToLongBits(key);
+        int slot = slot(bits);
+        while (used[slot]) {
+            if (keys[slot] == bits) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        used[slot] = true;
+        keys[slot] = bits;
+        values[slot] = value;
+        if (++size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        return value;
+    }
+
+    public long increment(double key) {
+        return addTo(key, 1);
+    }
+
+    // Value of key, or 0 if it is absent
+    public long get(double key) {
+        long bits = Double.doubleToLongBits(key);
+        for (int slot = slot(bits); used[slot]; slot = (slot + 1) & mask) {
+            if (keys[slot] == bits) {
+                return values[slot];
+            }
+        }
+        return 0;
+    }
+
+    public boolean containsKey(double key) {
+        long bits = Double.doubleToLongBits(key);
+        for (int slot = slot(bits); used[slot]; slot = (slot + 1) & mask) {
+            if (keys[slot] == bits) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Add every entry of other into this map
+    public void merge(DoubleLongHashMap other) {
+        for (int slot = 0; slot < other.keys.length; slot++) {
+            if (other.used[slot]) {
+                addTo(Double.longBitsToDouble(other.keys[slot]), other.values[slot]);
+            }
+        }
+    }
+
+    // Combine per-thread maps pairwise in parallel (log2 of the map count rounds); the maps in
+    // the list are modified and the combined map is returned
+    public static DoubleLongHashMap mergeAll(List<DoubleLongHashMap> maps) {
+        if (maps.isEmpty()) {
+            return new DoubleLongHashMap();
+        }
+        DoubleLongHashMap[] pending = maps.toArray(new DoubleLongHashMap[0]);
+        for (int step = 1; step < pending.length; step *= 2) {
+            int stride = step;
+            IntStream.range(0, (pending.length + 2 * stride - 1) / (2 * stride)).parallel().forEach(pair -> {
+                int left = pair * 2 * stride;
+                int right = left + stride;
+                if (right < pending.length) {
+                    pending[left].merge(pending[right]);
+                }
+            });
+        }
+        return pending[0];
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (used[slot]) {
+                consumer.accept(Double.longBitsToDouble(keys[slot]), values[slot]);
+            }
+        }
+    }
+
+    // Keys in ascending numeric order
+    public double[] sortedKeys() {
+        double[] result = new double[size];
+        int i = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (used[slot]) {
+                result[i++] = Double.longBitsToDouble(keys[slot]);
+            }
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    public interface EntryConsumer {
+        void accept(double key, long value);
+    }
+
+    private int slot(long bits) {
+        // Murmur3 finalizer, so keys differing only in high bits spread over the table
+        bits ^= bits >>> 33;
+        bits *= 0xFF51AFD7ED558CCDL;
+        bits ^= bits >>> 33;
+        return (int) bits & mask;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldUsed[slot]) {
+                int target = slot(oldKeys[slot]);
+                while (used[target]) {
+                    target = (target + 1) & mask;
+                }
+                used[target] = true;
+                keys[target] = oldKeys[slot];
+                values[target] = oldValues[slot];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size must not be negative: " + expectedSize);
+        }
+        long needed = Math.max(MIN_CAPACITY, (long) expectedSize * 2);
+        if (needed > 1 << 30) {
+            throw new IllegalArgumentException("Too many keys for one map: " + expectedSize);
+        }
+        return Integer.highestOneBit((int) needed - 1) << 1;
+    }
+}
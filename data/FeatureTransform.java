@@ -0,0 +1,56 @@
+package data;
+
+import java.util.Arrays;
+
+// Imputation and standardization applied on the fly while rows of a shared DesignMatrix are read,
+// so that cross-validation folds with different statistics can train and be evaluated on one
+// matrix without copying it: a missing (NaN) feature j is read as its fill value, then feature j
+// as (x - mean_j) * inverseStdDev_j and the target as (y - mean) * inverseStdDev, with the
+// statistics of a fitted StandardScaler.
+public class FeatureTransform {
+    private final int features;
+    private final double[] fills; // NaN where a missing value is not filled
+    private final double[] shifts; // Features first, target last
+    private final double[] scales;
+
+    FeatureTransform(double[] fills, double[] shifts, double[] scales) {
+        this.features = shifts.length - 1;
+        this.fills = fills;
+        this.shifts = shifts;
+        this.scales = scales;
+    }
+
+    // Transform using a scaler fitted on the features followed by the target
+    public static FeatureTransform of(StandardScaler scaler) {
+        return of(scaler, null);
+    }
+
+    // Transform that first replaces a missing feature j by fills[j] (no filling when fills is null)
+    public static FeatureTransform of(StandardScaler scaler, double[] fills) {
+        double[] featureFills = new double[scaler.getWidth() - 1];
+        Arrays.fill(featureFills, Double.NaN);
+        if (fills != null) {
+            System.arraycopy(fills, 0, featureFills, 0, featureFills.length);
+        }
+        return new FeatureTransform(featureFills, scaler.getMeans(), scaler.getInverseStdDevs());
+    }
+
+    public int getFeatureCount() {
+        return features;
+    }
+
+    // Write the transformed features of the row starting at x[offset] to out[0 .. features)
+    void features(double[] x, int offset, double[] out) {
+        for (int j = 0; j < features; j++) {
+            double value = x[offset + j];
+            if (Double.isNaN(value)) {
+                value = fills[j];
+            }
+            out[j] = (value - shifts[j]) * scales[j];
+        }
+    }
+
+    double target(double y) {
+        return (y - shifts[features]) * scales[features];
+    }
+}
@@ -0,0 +1,171 @@
+package data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Most frequent values of a stream of doubles in bounded memory (the Misra-Gries summary). At most
+// maxCounters values are tracked; a new value arriving when all counters are taken decrements
+// every counter instead, dropping those that reach zero.
+//
+// Error: a tracked count never overestimates, and underestimates the true count by at most
+// getMaxError() <= n / (maxCounters + 1). Any value occurring more than n / (maxCounters + 1)
+// times is guaranteed to be tracked, so the mode is found whenever it is that frequent. Two
+// summaries merge (counters added, then all reduced by the (maxCounters + 1)-th largest count)
+// with the same bound over the combined stream, and they serialize so per-shard summaries can
+// be merged.
+public class FrequentItemsSketch {
+    public static final int DEFAULT_MAX_COUNTERS = 256;
+    private static final long MAGIC = 0x4A4D4C4652455153L; // "JMLFREQS"
+    private static final int VERSION = 1;
+
+    private final int maxCounters;
+    private final Map<Double, Long> counters = new HashMap<>();
+    private long count;
+    private long trackedTotal; // Sum of the counters; count - trackedTotal bounds the error
+
+    public FrequentItemsSketch() {
+        this(DEFAULT_MAX_COUNTERS);
+    }
+
+    public FrequentItemsSketch(int maxCounters) {
+        if (maxCounters <= 0) {
+            throw new IllegalArgumentException("Counter count must be positive: " + maxCounters);
+        }
+        this.maxCounters = maxCounters;
+    }
+
+    // Add one value; NaN is ignored
+    public void update(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        count++;
+        Long current = counters.get(value);
+        if (current != null) {
+            counters.put(value, current + 1);
+            trackedTotal++;
+        } else if (counters.size() < maxCounters) {
+            counters.put(value, 1L);
+            trackedTotal++;
+        } else {
+            // The new value and one occurrence of every tracked value cancel out
+            trackedTotal -= counters.size();
+            counters.replaceAll((item, itemCount) -> itemCount - 1);
+            counters.values().removeIf(itemCount -> itemCount == 0);
+        }
+    }
+
+    // Fold in another summary with the same number of counters
+    public void merge(FrequentItemsSketch other) {
+        if (other.maxCounters != maxCounters) {
+            throw new IllegalArgumentException("Cannot merge summaries with " + maxCounters + " and "
+                    + other.maxCounters + " counters.");
+        }
+        for (Map.Entry<Double, Long> entry : other.counters.entrySet()) {
+            counters.merge(entry.getKey(), entry.getValue(), Long::sum);
+        }
+        count += other.count;
+        trackedTotal += other.trackedTotal;
+        if (counters.size() > maxCounters) {
+            long[] counts = new long[counters.size()];
+            int i = 0;
+            for (long itemCount : counters.values()) {
+                counts[i++] = itemCount;
+            }
+            Arrays.sort(counts);
+            long cut = counts[counts.length - 1 - maxCounters]; // (maxCounters + 1)-th largest
+            trackedTotal = 0;
+            counters.replaceAll((item, itemCount) -> itemCount - cut);
+            counters.values().removeIf(itemCount -> itemCount <= 0);
+            for (long itemCount : counters.values()) {
+                trackedTotal += itemCount;
+            }
+        }
+    }
+
+    public int getMaxCounters() {
+        return maxCounters;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    // Largest possible undercount of any value's estimate
+    public long getMaxError() {
+        return (count - trackedTotal) / (maxCounters + 1);
+    }
+
+    // Lower bound on how often value occurred (0 if it is not tracked)
+    public long getEstimate(double value) {
+        Long itemCount = counters.get(value);
+        return itemCount != null ? itemCount : 0;
+    }
+
+    // Upper bound on how often value occurred
+    public long getUpperBound(double value) {
+        return getEstimate(value) + getMaxError();
+    }
+
+    // Tracked values, most frequent first (ties by value)
+    public List<Map.Entry<Double, Long>> getFrequentItems() {
+        List<Map.Entry<Double, Long>> items = new ArrayList<>(counters.entrySet());
+        items.sort((a, b) -> {
+            int order = Long.compare(b.getValue(), a.getValue());
+            return order != 0 ? order : Double.compare(a.getKey(), b.getKey());
+        });
+        return items;
+    }
+
+    // Most frequent tracked value, NaN for an empty stream
+    public double getMode() {
+        List<Map.Entry<Double, Long>> items = getFrequentItems();
+        return items.isEmpty() ? Double.NaN : items.get(0).getKey();
+    }
+
+    public byte[] toByteArray() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(maxCounters);
+            out.writeLong(count);
+            out.writeInt(counters.size());
+            for (Map.Entry<Double, Long> entry : counters.entrySet()) {
+                out.writeDouble(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    public static FrequentItemsSketch fromByteArray(byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            if (in.readLong() != MAGIC) {
+                throw new IOException("Not a frequent items summary.");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported frequent items summary version " + version);
+            }
+            FrequentItemsSketch sketch = new FrequentItemsSketch(in.readInt());
+            sketch.count = in.readLong();
+            int tracked = in.readInt();
+            for (int i = 0; i < tracked; i++) {
+                double item = in.readDouble();
+                long itemCount = in.readLong();
+                sketch.counters.put(item, itemCount);
+                sketch.trackedTotal += itemCount;
+            }
+            return sketch;
+        }
+    }
+}
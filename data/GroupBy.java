@@ -0,0 +1,469 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Hash aggregation of a DataTable: rows are grouped by a key expression (a column, a binned
+// column, or a composite of those) and any number of aggregates (count, sum, mean, min, max,
+// variance) are computed per group over any columns. Rows missing the key or any aggregated
+// column are skipped. The table is scanned once, in fixed-size row chunks in parallel; each chunk
+// aggregates into its own primitive arrays (variances with Welford's update) and the
+// partial results are merged pairwise at the end.
+//
+//   GroupBy.Result result = new GroupBy(table, GroupBy.bin(table, "Age", 10))
+//           .aggregate(GroupBy.Aggregate.MEAN, "Protein3")
+//           .run();
+public class GroupBy {
+    private static final int CHUNK_ROWS = 1 << 16; // Rows aggregated per task
+
+    public enum Aggregate {
+        COUNT, SUM, MEAN, MIN, MAX, VARIANCE
+    }
+
+    // Maps each row to a long group key. Keys order the groups in the result.
+    public interface Key {
+        boolean isMissing(int row);
+
+        long of(int row);
+
+        // Printable form of a key produced by of()
+        String label(long key);
+    }
+
+    private final DataTable table;
+    private final Key key;
+    private final List<Aggregate> aggregates = new ArrayList<>();
+    private final List<String> aggregateColumns = new ArrayList<>();
+
+    public GroupBy(DataTable table, Key key) {
+        this.table = table;
+        this.key = key;
+    }
+
+    // Add an aggregate over a column; the column is ignored for COUNT and may be null
+    public GroupBy aggregate(Aggregate aggregate, String column) {
+        if (aggregate != Aggregate.COUNT) {
+            table.columnIndex(column); // Fail early on an unknown column
+        }
+        aggregates.add(aggregate);
+        aggregateColumns.add(aggregate == Aggregate.COUNT ? null : column);
+        return this;
+    }
+
+    public Result run() {
+        // Each distinct aggregated column gets one set of running statistics
+        List<String> valueColumnNames = new ArrayList<>();
+        int[] aggregateSlots = new int[aggregates.size()];
+        for (int a = 0; a < aggregates.size(); a++) {
+            String column = aggregateColumns.get(a);
+            if (column == null) {
+                aggregateSlots[a] = -1;
+                continue;
+            }
+            int slot = valueColumnNames.indexOf(column);
+            if (slot < 0) {
+                slot = valueColumnNames.size();
+                valueColumnNames.add(column);
+            }
+            aggregateSlots[a] = slot;
+        }
+        int valueColumnCount = valueColumnNames.size();
+        double[][] values = new double[valueColumnCount][];
+        long[][] nulls = new long[valueColumnCount][];
+        for (int c = 0; c < valueColumnCount; c++) {
+            int column = table.columnIndex(valueColumnNames.get(c));
+            values[c] = table.getDoubleColumn(column);
+            nulls[c] = table.nullBitmap(column);
+        }
+
+        int rows = table.getRowCount();
+        int chunks = Math.max(1, (rows + CHUNK_ROWS - 1) / CHUNK_ROWS);
+        IntStream chunkRange = IntStream.range(0, chunks);
+        if (chunks > 1) {
+            chunkRange = chunkRange.parallel();
+        }
+        List<Partial> partials = chunkRange.mapToObj(chunk -> {
+            Partial partial = new Partial(valueColumnCount);
+            int end = Math.min((chunk + 1) * CHUNK_ROWS, rows);
+            rowLoop:
+            for (int row = chunk * CHUNK_ROWS; row < end; row++) {
+                if (key.isMissing(row)) {
+                    continue;
+                }
+                for (int c = 0; c < valueColumnCount; c++) {
+                    if ((nulls[c][row >>> 6] & (1L << row)) != 0) {
+                        continue rowLoop;
+                    }
+                }
+                int group = partial.group(key.of(row));
+                long count = ++partial.counts[group];
+                for (int c = 0; c < valueColumnCount; c++) {
+                    partial.add(c, group, count, values[c][row]);
+                }
+            }
+            return partial;
+        }).collect(Collectors.toList());
+        Partial merged = mergeAll(partials);
+
+        // Groups in key order, with the requested aggregates read off the merged statistics
+        int groups = merged.groups;
+        Integer[] order = new Integer[groups];
+        for (int g = 0; g < groups; g++) {
+            order[g] = g;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(merged.keys[a], merged.keys[b]));
+        long[] keys = new long[groups];
+        String[] labels = new String[groups];
+        long[] counts = new long[groups];
+        double[][] results = new double[aggregates.size()][groups];
+        for (int i = 0; i < groups; i++) {
+            int g = order[i];
+            keys[i] = merged.keys[g];
+            labels[i] = key.label(keys[i]);
+            counts[i] = merged.counts[g];
+            for (int a = 0; a < aggregates.size(); a++) {
+                results[a][i] = merged.value(aggregates.get(a), aggregateSlots[a], g);
+            }
+        }
+        String[] names = new String[aggregates.size()];
+        for (int a = 0; a < names.length; a++) {
+            String column = aggregateColumns.get(a);
+            names[a] = aggregates.get(a).name().toLowerCase() + (column != null ? "(" + column + ")" : "");
+        }
+        return new Result(names, keys, labels, counts, results);
+    }
+
+    // Combine the chunk partials pairwise in parallel, as DoubleLongHashMap.mergeAll does
+    private static Partial mergeAll(List<Partial> partials) {
+        Partial[] pending = partials.toArray(new Partial[0]);
+        for (int step = 1; step < pending.length; step *= 2) {
+            int stride = step;
+            IntStream.range(0, (pending.length + 2 * stride - 1) / (2 * stride)).parallel().forEach(pair -> {
+                int left = pair * 2 * stride;
+                int right = left + stride;
+                if (right < pending.length) {
+                    pending[left].merge(pending[right]);
+                }
+            });
+        }
+        return pending[0];
+    }
+
+    // Key on a column's values. Integer columns key on the value itself; double columns key on
+    // the value's bits, ordered like Double.compare.
+    public static Key column(DataTable table, String name) {
+        int column = table.columnIndex(name);
+        if (table.getType(column) == DataTable.ColumnType.INT) {
+            int[] values = table.getIntColumn(column);
+            return new Key() {
+                public boolean isMissing(int row) {
+                    return table.isMissing(column, row);
+                }
+
+                public long of(int row) {
+                    return values[row];
+                }
+
+                public String label(long key) {
+                    return String.valueOf(key);
+                }
+            };
+        }
+        double[] values = table.getDoubleColumn(column);
+        return new Key() {
+            public boolean isMissing(int row) {
+                return table.isMissing(column, row);
+            }
+
+            public long of(int row) {
+                return sortableBits(Double.doubleToLongBits(values[row]));
+            }
+
+            public String label(long key) {
+                return String.valueOf(Double.longBitsToDouble(sortableBits(key)));
+            }
+        };
+    }
+
+    // Key on fixed-width bins of a column: bin k holds values in [k * width, (k + 1) * width).
+    // Bins of integer columns with an integer width are labelled like "20-29".
+    public static Key bin(DataTable table, String name, double width) {
+        if (!(width > 0)) {
+            throw new IllegalArgumentException("Bin width must be positive: " + width);
+        }
+        int column = table.columnIndex(name);
+        double[] values = table.getDoubleColumn(column);
+        boolean integral = table.getType(column) == DataTable.ColumnType.INT && width == Math.rint(width);
+        return new Key() {
+            public boolean isMissing(int row) {
+                return table.isMissing(column, row);
+            }
+
+            public long of(int row) {
+                return (long) Math.floor(values[row] / width);
+            }
+
+            public String label(long key) {
+                if (integral) {
+                    long low = key * (long) width;
+                    return low + "-" + (low + (long) width - 1);
+                }
+                return "[" + key * width + ", " + (key + 1) * width + ")";
+            }
+        };
+    }
+
+    // Key on several keys at once. Each part's key is packed into 64 / parts.length bits, so the
+    // parts must be small integers such as integer columns or bins; a key that does not fit fails.
+    public static Key composite(Key... parts) {
+        if (parts.length < 2 || parts.length > 4) {
+            throw new IllegalArgumentException("A composite key needs 2 to 4 parts: " + parts.length);
+        }
+        int bits = 64 / parts.length;
+        long fieldMask = -1L >>> (64 - bits);
+        long limit = 1L << (bits - 1);
+        return new Key() {
+            public boolean isMissing(int row) {
+                for (Key part : parts) {
+                    if (part.isMissing(row)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            public long of(int row) {
+                long packed = 0;
+                for (Key part : parts) {
+                    long value = part.of(row);
+                    if (value < -limit || value >= limit) {
+                        throw new IllegalArgumentException("Key " + value + " does not fit in a " + parts.length
+                                + "-part composite key.");
+                    }
+                    // Offset to unsigned so packed keys sort like the tuple of parts
+                    packed = (packed << bits) | ((value + limit) & fieldMask);
+                }
+                return packed ^ Long.MIN_VALUE;
+            }
+
+            public String label(long key) {
+                key ^= Long.MIN_VALUE;
+                String[] labels = new String[parts.length];
+                for (int i = parts.length - 1; i >= 0; i--) {
+                    labels[i] = parts[i].label((key & fieldMask) - limit);
+                    key >>>= bits;
+                }
+                return String.join(", ", labels);
+            }
+        };
+    }
+
+    // Bits of a double, flipped so that signed long order matches Double.compare (self-inverse)
+    private static long sortableBits(long bits) {
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    // Groups in key order with one value per group for each aggregate, in the order added
+    public static class Result {
+        private final String[] aggregateNames;
+        private final long[] keys;
+        private final String[] labels;
+        private final long[] counts;
+        private final double[][] values;
+
+        Result(String[] aggregateNames, long[] keys, String[] labels, long[] counts, double[][] values) {
+            this.aggregateNames = aggregateNames;
+            this.keys = keys;
+            this.labels = labels;
+            this.counts = counts;
+            this.values = values;
+        }
+
+        public int getGroupCount() {
+            return keys.length;
+        }
+
+        public long getKey(int group) {
+            return keys[group];
+        }
+
+        public String getLabel(int group) {
+            return labels[group];
+        }
+
+        // Rows aggregated into the group
+        public long getCount(int group) {
+            return counts[group];
+        }
+
+        public int getAggregateCount() {
+            return aggregateNames.length;
+        }
+
+        // Name such as "mean(Protein3)"
+        public String getAggregateName(int aggregate) {
+            return aggregateNames[aggregate];
+        }
+
+        public double getValue(int group, int aggregate) {
+            return values[aggregate][group];
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            for (int g = 0; g < keys.length; g++) {
+                builder.append(labels[g]).append(": count=").append(counts[g]);
+                for (int a = 0; a < aggregateNames.length; a++) {
+                    builder.append(", ").append(aggregateNames[a]).append('=').append(values[a][g]);
+                }
+                builder.append('\n');
+            }
+            return builder.toString();
+        }
+    }
+
+    // Running statistics per group for one chunk of rows, indexed [value column][group]. Group ids
+    // are assigned densely in first-seen order through an open-addressing key table.
+    private static final class Partial {
+        private final int valueColumns;
+        private long[] tableKeys = new long[32];
+        private int[] tableGroups = new int[32];
+        private boolean[] tableUsed = new boolean[32];
+        private long[] keys = new long[16];
+        private long[] counts = new long[16];
+        private double[][] sums;
+        private double[][] means;
+        private double[][] m2s;
+        private double[][] mins;
+        private double[][] maxs;
+        private int groups;
+
+        Partial(int valueColumns) {
+            this.valueColumns = valueColumns;
+            sums = new double[valueColumns][16];
+            means = new double[valueColumns][16];
+            m2s = new double[valueColumns][16];
+            mins = new double[valueColumns][16];
+            maxs = new double[valueColumns][16];
+        }
+
+        // Group id of a key, adding an empty group if the key is new
+        int group(long key) {
+            int mask = tableKeys.length - 1;
+            int slot = slot(key, mask);
+            while (tableUsed[slot]) {
+                if (tableKeys[slot] == key) {
+                    return tableGroups[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (groups == keys.length) {
+                growGroups();
+            }
+            int group = groups++;
+            keys[group] = key;
+            for (int c = 0; c < valueColumns; c++) {
+                mins[c][group] = Double.POSITIVE_INFINITY;
+                maxs[c][group] = Double.NEGATIVE_INFINITY;
+            }
+            tableUsed[slot] = true;
+            tableKeys[slot] = key;
+            tableGroups[slot] = group;
+            if (groups * 2 > tableKeys.length) {
+                rehash();
+            }
+            return group;
+        }
+
+        // Fold one value into a group whose count already includes it
+        void add(int column, int group, long count, double value) {
+            double delta = value - means[column][group];
+            means[column][group] += delta / count;
+            m2s[column][group] += delta * (value - means[column][group]);
+            sums[column][group] += value;
+            mins[column][group] = Math.min(mins[column][group], value);
+            maxs[column][group] = Math.max(maxs[column][group], value);
+        }
+
+        void merge(Partial other) {
+            for (int o = 0; o < other.groups; o++) {
+                int g = group(other.keys[o]);
+                long countA = counts[g];
+                long countB = other.counts[o];
+                long total = countA + countB;
+                for (int c = 0; c < valueColumns; c++) {
+                    double delta = other.means[c][o] - means[c][g];
+                    means[c][g] += delta * countB / total;
+                    m2s[c][g] += other.m2s[c][o] + delta * delta * ((double) countA * countB / total);
+                    sums[c][g] += other.sums[c][o];
+                    mins[c][g] = Math.min(mins[c][g], other.mins[c][o]);
+                    maxs[c][g] = Math.max(maxs[c][g], other.maxs[c][o]);
+                }
+                counts[g] = total;
+            }
+        }
+
+        double value(Aggregate aggregate, int column, int group) {
+            switch (aggregate) {
+                case COUNT:
+                    return counts[group];
+                case SUM:
+                    return sums[column][group];
+                case MEAN:
+                    return sums[column][group] / counts[group];
+                case MIN:
+                    return mins[column][group];
+                case MAX:
+                    return maxs[column][group];
+                case VARIANCE:
+                    return m2s[column][group] / counts[group];
+                default:
+                    throw new IllegalArgumentException("Unknown aggregate: " + aggregate);
+            }
+        }
+
+        private void growGroups() {
+            int capacity = keys.length * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            for (int c = 0; c < valueColumns; c++) {
+                sums[c] = Arrays.copyOf(sums[c], capacity);
+                means[c] = Arrays.copyOf(means[c], capacity);
+                m2s[c] = Arrays.copyOf(m2s[c], capacity);
+                mins[c] = Arrays.copyOf(mins[c], capacity);
+                maxs[c] = Arrays.copyOf(maxs[c], capacity);
+            }
+        }
+
+        private void rehash() {
+            int capacity = tableKeys.length * 2;
+            int mask = capacity - 1;
+            long[] newKeys = new long[capacity];
+            int[] newGroups = new int[capacity];
+            boolean[] newUsed = new boolean[capacity];
+            for (int group = 0; group < groups; group++) {
+                int slot = slot(keys[group], mask);
+                while (newUsed[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                newUsed[slot] = true;
+                newKeys[slot] = keys[group];
+                newGroups[slot] = group;
+            }
+            tableKeys = newKeys;
+            tableGroups = newGroups;
+            tableUsed = newUsed;
+        }
+
+        private static int slot(long key, int mask) {
+            key ^= key >>> 33;
+            key *= 0xFF51AFD7ED558CCDL;
+            key ^= key >>> 33;
+            return (int) key & mask;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+// Fills missing cells with a per-column statistic (mean, median or mode) of the values present,
+// optionally computed separately for each value of a group column (e.g. the median Protein1
+// within each Tumour_Stage). Rows whose group is missing, or has no values for the column, get
+// the column's overall statistic. fit() learns the statistics with the columns processed in
+// parallel; transform() fills a table in place. A DesignMatrix whose missing features are NaN
+// (DesignMatrix.fromTableWithMissing) can be fitted on its training rows only and then filled,
+// train and test rows alike, without grouping. The fitted statistics can be saved, so scoring
+// code can replay exactly the imputation the model was trained with:
+//   magic (long "JMLIMPUT"), version (int), strategy (UTF), has group (boolean), group column (UTF),
+//   column count (int), per column: name (UTF), overall value (double), group count (int),
+//   per group: group key (double), value (double)
+public class Imputer {
+    private static final long MAGIC = 0x4A4D4C494D505554L; // "JMLIMPUT"
+    private static final int VERSION = 1;
+
+    public enum Strategy {
+        MEAN, MEDIAN, MODE
+    }
+
+    private final Strategy strategy;
+    private final String groupColumn; // null when not grouping
+    private String[] columns = new String[0];
+    private double[] overallValues = new double[0];
+    private double[][] groupKeys = new double[0][]; // Sorted, per column
+    private double[][] groupValues = new double[0][];
+
+    public Imputer(Strategy strategy) {
+        this(strategy, null);
+    }
+
+    public Imputer(Strategy strategy, String groupColumn) {
+        this.strategy = strategy;
+        this.groupColumn = groupColumn;
+    }
+
+    // Learn the fill value of every column except the group column and the excluded ones
+    public Imputer fit(DataTable table, String... excludedColumns) {
+        Set<String> excluded = new HashSet<>(Arrays.asList(excludedColumns));
+        if (groupColumn != null) {
+            excluded.add(groupColumn);
+        }
+        int[] fitted = IntStream.range(0, table.getColumnCount())
+                .filter(column -> !excluded.contains(table.getHeader(column)))
+                .toArray();
+        int group = groupColumn != null ? table.columnIndex(groupColumn) : -1;
+
+        String[] fittedNames = new String[fitted.length];
+        double[] fittedOverall = new double[fitted.length];
+        double[][] fittedKeys = new double[fitted.length][];
+        double[][] fittedValues = new double[fitted.length][];
+        IntStream.range(0, fitted.length).parallel().forEach(i -> {
+            int column = fitted[i];
+            fittedNames[i] = table.getHeader(column);
+            double[] values = table.getDoubleColumn(column);
+            int[] present = table.completeRows(column);
+            double[] observed = new double[present.length];
+            for (int r = 0; r < present.length; r++) {
+                observed[r] = values[present[r]];
+            }
+            fittedOverall[i] = statistic(observed, 0, observed.length);
+            if (group < 0) {
+                fittedKeys[i] = new double[0];
+                fittedValues[i] = new double[0];
+            } else {
+                fitGroups(table, column, group, i, fittedKeys, fittedValues);
+            }
+        });
+        columns = fittedNames;
+        overallValues = fittedOverall;
+        groupKeys = fittedKeys;
+        groupValues = fittedValues;
+        return this;
+    }
+
+    // Learn the fill value of every feature of the matrix from the given rows (all rows when rows
+    // is null), NaN marking a missing value. Grouping needs the group column of a DataTable.
+    public Imputer fit(DesignMatrix data, int[] rows) {
+        if (groupColumn != null) {
+            throw new IllegalStateException("Grouped imputation by " + groupColumn + " needs a DataTable.");
+        }
+        int n = rows != null ? rows.length : data.getRowCount();
+        int p = data.getFeatureCount();
+        double[] x = data.getX();
+        double[] fittedOverall = new double[p];
+        IntStream.range(0, p).parallel().forEach(j -> {
+            double[] observed = new double[n];
+            int count = 0;
+            for (int i = 0; i < n; i++) {
+                double value = x[(rows != null ? rows[i] : i) * p + j];
+                if (!Double.isNaN(value)) {
+                    observed[count++] = value;
+                }
+            }
+            fittedOverall[j] = statistic(observed, 0, count);
+        });
+        columns = data.getFeatureNames();
+        overallValues = fittedOverall;
+        groupKeys = new double[p][0];
+        groupValues = new double[p][0];
+        return this;
+    }
+
+    // Per-group statistics: the present values are bucketed by group key (counting sort on dense
+    // group ids) and the statistic is taken over each bucket
+    private void fitGroups(DataTable table, int column, int group, int slot, double[][] keysOut,
+            double[][] valuesOut) {
+        double[] values = table.getDoubleColumn(column);
+        double[] groups = table.getDoubleColumn(group);
+        int[] rows = table.completeRows(column, group);
+        DoubleLongHashMap ids = new DoubleLongHashMap();
+        int[] rowIds = new int[rows.length];
+        for (int r = 0; r < rows.length; r++) {
+            rowIds[r] = (int) ids.putIfAbsent(groups[rows[r]], ids.size());
+        }
+        int groupCount = ids.size();
+        int[] starts = new int[groupCount + 1];
+        for (int id : rowIds) {
+            starts[id + 1]++;
+        }
+        for (int id = 0; id < groupCount; id++) {
+            starts[id + 1] += starts[id];
+        }
+        double[] bucketed = new double[rows.length];
+        int[] next = Arrays.copyOf(starts, groupCount);
+        for (int r = 0; r < rows.length; r++) {
+            bucketed[next[rowIds[r]]++] = values[rows[r]];
+        }
+
+        double[] keys = ids.sortedKeys();
+        double[] fills = new double[groupCount];
+        for (int k = 0; k < groupCount; k++) {
+            int id = (int) ids.get(keys[k]);
+            fills[k] = statistic(bucketed, starts[id], starts[id + 1]);
+        }
+        keysOut[slot] = keys;
+        valuesOut[slot] = fills;
+    }
+
+    private double statistic(double[] values, int from, int to) {
+        if (from == to) {
+            return Double.NaN;
+        }
+        switch (strategy) {
+            case MEAN:
+                double sum = 0;
+                for (int i = from; i < to; i++) {
+                    sum += values[i];
+                }
+                return sum / (to - from);
+            case MEDIAN:
+                return Quantiles.median(Arrays.copyOfRange(values, from, to));
+            case MODE:
+                return DescriptiveStatistics.calculateMode(Arrays.copyOfRange(values, from, to));
+            default:
+                throw new IllegalArgumentException("Unknown strategy: " + strategy);
+        }
+    }
+
+    // Fill the missing cells of every fitted column present in the table, in place; returns the
+    // number of cells filled. Columns without any fitted value are left as they are.
+    public int transform(DataTable table) {
+        int group = groupColumn != null ? table.indexOf(groupColumn) : -1;
+        double[] groups = group >= 0 ? table.getDoubleColumn(group) : null;
+        return IntStream.range(0, columns.length).parallel().map(i -> {
+            int column = table.indexOf(columns[i]);
+            if (column < 0 || !table.hasMissing(column)) {
+                return 0;
+            }
+            int[] rows = new int[table.missingCount(column)];
+            double[] fills = new double[rows.length];
+            int filled = 0;
+            for (int row = 0; row < table.getRowCount(); row++) {
+                if (!table.isMissing(column, row)) {
+                    continue;
+                }
+                double groupKey = group >= 0 && !table.isMissing(group, row) ? groups[row] : Double.NaN;
+                double fill = fillValue(i, groupKey);
+                if (!Double.isNaN(fill)) {
+                    rows[filled] = row;
+                    fills[filled++] = fill;
+                }
+            }
+            table.fill(column, Arrays.copyOf(rows, filled), Arrays.copyOf(fills, filled));
+            return filled;
+        }).sum();
+    }
+
+    // Replace every NaN feature value of the matrix that has a fitted fill value, in place (rows
+    // in parallel); returns the number of values filled
+    public int transform(DesignMatrix data) {
+        if (groupColumn != null) {
+            throw new IllegalStateException("Grouped imputation by " + groupColumn + " needs a DataTable.");
+        }
+        int p = data.getFeatureCount();
+        double[] fills = fillValues(data.getFeatureNames());
+        double[] x = data.getX();
+        return IntStream.range(0, data.getRowCount()).parallel().map(row -> {
+            int filled = 0;
+            for (int j = 0, offset = row * p; j < p; j++) {
+                if (Double.isNaN(x[offset + j]) && !Double.isNaN(fills[j])) {
+                    x[offset + j] = fills[j];
+                    filled++;
+                }
+            }
+            return filled;
+        }).sum();
+    }
+
+    // Overall fill value of each of the named columns (NaN for columns without one)
+    double[] fillValues(String[] names) {
+        double[] fills = new double[names.length];
+        for (int j = 0; j < names.length; j++) {
+            fills[j] = fillValue(names[j], Double.NaN);
+        }
+        return fills;
+    }
+
+    // Value used for a missing cell of the column in a row whose group column holds groupKey
+    // (NaN when the row has no group); NaN if the column was not fitted or had no values
+    public double fillValue(String column, double groupKey) {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].equals(column)) {
+                return fillValue(i, groupKey);
+            }
+        }
+        return Double.NaN;
+    }
+
+    private double fillValue(int slot, double groupKey) {
+        if (!Double.isNaN(groupKey)) {
+            int k = Arrays.binarySearch(groupKeys[slot], groupKey);
+            if (k >= 0 && !Double.isNaN(groupValues[slot][k])) {
+                return groupValues[slot][k];
+            }
+        }
+        return overallValues[slot];
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    // Group column, or null when the imputer does not group
+    public String getGroupColumn() {
+        return groupColumn;
+    }
+
+    public String[] getColumns() {
+        return columns.clone();
+    }
+
+    public void save(String filePath) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(Paths.get(filePath))))) {
+            out.writeLong(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(strategy.name());
+            out.writeBoolean(groupColumn != null);
+            out.writeUTF(groupColumn != null ? groupColumn : "");
+            out.writeInt(columns.length);
+            for (int i = 0; i < columns.length; i++) {
+                out.writeUTF(columns[i]);
+                out.writeDouble(overallValues[i]);
+                out.writeInt(groupKeys[i].length);
+                for (int k = 0; k < groupKeys[i].length; k++) {
+                    out.writeDouble(groupKeys[i][k]);
+                    out.writeDouble(groupValues[i][k]);
+                }
+            }
+        }
+    }
+
+    public static Imputer load(String filePath) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(Paths.get(filePath))))) {
+            if (in.readLong() != MAGIC) {
+                throw new IOException("Not an imputer file: " + filePath);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported imputer version " + version + " in " + filePath);
+            }
+            Strategy strategy = Strategy.valueOf(in.readUTF());
+            boolean grouped = in.readBoolean();
+            String groupColumn = in.readUTF();
+            Imputer imputer = new Imputer(strategy, grouped ? groupColumn : null);
+            int count = in.readInt();
+            imputer.columns = new String[count];
+            imputer.overallValues = new double[count];
+            imputer.groupKeys = new double[count][];
+            imputer.groupValues = new double[count][];
+            for (int i = 0; i < count; i++) {
+                imputer.columns[i] = in.readUTF();
+                imputer.overallValues[i] = in.readDouble();
+                int groups = in.readInt();
+                imputer.groupKeys[i] = new double[groups];
+                imputer.groupValues[i] = new double[groups];
+                for (int k = 0; k < groups; k++) {
+                    imputer.groupKeys[i][k] = in.readDouble();
+                    imputer.groupValues[i][k] = in.readDouble();
+                }
+            }
+            return imputer;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package data;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+// Open-addressing hash map from int to long, for counting integer keys (categories, group ids)
+// without boxing. Linear probing over power-of-two tables kept at most half full. Not thread-safe: count into
+// one map per thread and combine them with merge or mergeAll.
+public class IntLongHashMap {
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private long[] values;
+    private boolean[] used;
+    private int size;
+    private int mask;
+
+    public IntLongHashMap() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    // Map sized to hold expectedSize keys without rehashing
+    public IntLongHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    // Add delta to the value of key (absent keys start at 0) and return the new value
+    public long addTo(int key, long delta) {
+        int slot = slot(key);
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                return values[slot] += delta;
+            }
+            slot = (slot + 1) & mask;
+        }
+        used[slot] = true;
+        keys[slot] = key;
+        values[slot] = delta;
+        if (++size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        return delta;
+    }
+
+    // Value of key, first storing value for it if the key is absent
+    public long putIfAbsent(int key, long value) {
+        int slot = slot(key);
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        used[slot] = true;
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        return value;
+    }
+
+    public long increment(int key) {
+        return addTo(key, 1);
+    }
+
+    // Value of key, or 0 if it is absent
+    public long get(int key) {
+        for (int slot = slot(key); used[slot]; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return 0;
+    }
+
+    public boolean containsKey(int key) {
+        for (int slot = slot(key); used[slot]; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Add every entry of other into this map
+    public void merge(IntLongHashMap other) {
+        for (int slot = 0; slot < other.keys.length; slot++) {
+            if (other.used[slot]) {
+                addTo(other.keys[slot], other.values[slot]);
+            }
+        }
+    }
+
+    // Combine per-thread maps pairwise in parallel (log2 of the map count rounds); the maps in
+    // the list are modified and the combined map is returned
+    public static IntLongHashMap mergeAll(List<IntLongHashMap> maps) {
+        if (maps.isEmpty()) {
+            return new IntLongHashMap();
+        }
+        IntLongHashMap[] pending = maps.toArray(new IntLongHashMap[0]);
+        for (int step = 1; step < pending.length; step *= 2) {
+            int stride = step;
+            IntStream.range(0, (pending.length + 2 * stride - 1) / (2 * stride)).parallel().forEach(pair -> {
+                int left = pair * 2 * stride;
+                int right = left + stride;
+                if (right < pending.length) {
+                    pending[left].merge(pending[right]);
+                }
+            });
+        }
+        return pending[0];
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (used[slot]) {
+                consumer.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    // Keys in ascending numeric order
+    public int[] sortedKeys() {
+        int[] result = new int[size];
+        int i = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (used[slot]) {
+                result[i++] = keys[slot];
+            }
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    public interface EntryConsumer {
+        void accept(int key, long value);
+    }
+
+    private int slot(int key) {
+        // Murmur3 finalizer, so sequential and strided keys spread over the table
+        key ^= key >>> 16;
+        key *= 0x85EBCA6B;
+        key ^= key >>> 13;
+        return key & mask;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldUsed[slot]) {
+                int target = slot(oldKeys[slot]);
+                while (used[target]) {
+                    target = (target + 1) & mask;
+                }
+                used[target] = true;
+                keys[target] = oldKeys[slot];
+                values[target] = oldValues[slot];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new long[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size must not be negative: " + expectedSize);
+        }
+        long needed = Math.max(MIN_CAPACITY, (long) expectedSize * 2);
+        if (needed > 1 << 30) {
+            throw new IllegalArgumentException("Too many keys for one map: " + expectedSize);
+        }
+        return Integer.highestOneBit((int) needed - 1) << 1;
+    }
+}
@@ -0,0 +1,307 @@
+package data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+// Approximate quantiles of a stream of doubles in bounded memory (the KLL sketch of Karnin, Lang
+// and Liberty). Values go into a stack of compactors; compactor h holds values that each stand
+// for 2^h inputs. When the sketch is full, the lowest compactor over its capacity is sorted and
+// every other value (randomly the odd or even ones) is promoted to the next level. Capacities
+// shrink geometrically by 2/3 going down from the top level, so the sketch holds about 3k values
+// plus O(log n).
+//
+// Error: a quantile query returns a value whose rank is within eps * n of the requested rank,
+// with eps = O(1 / k) with high probability; k = 200 (the default) keeps the rank error around
+// 1% of n. Min and max are exact. Sketches built with the same k over disjoint parts of a
+// stream merge into a sketch with the same guarantee, and they serialize to a few KB so per-shard
+// sketches can be shipped and merged.
+public class KllSketch {
+    public static final int DEFAULT_K = 200;
+    private static final double CAPACITY_RATIO = 2.0 / 3.0;
+    private static final long MAGIC = 0x4A4D4C4B4C4C534BL; // "JMLKLLSK"
+    private static final int VERSION = 1;
+
+    private final int k;
+    private double[][] levels = new double[0][];
+    private int[] levelSizes = new int[0];
+    private int size; // Values held across all levels
+    private int maxSize;
+    private long count;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    private long randomState;
+
+    public KllSketch() {
+        this(DEFAULT_K);
+    }
+
+    public KllSketch(int k) {
+        this(k, 0x9E3779B97F4A7C15L);
+    }
+
+    // The seed drives the coin flips of compaction, so equal seeds and inputs give equal sketches
+    public KllSketch(int k, long seed) {
+        if (k < 8) {
+            throw new IllegalArgumentException("k must be at least 8: " + k);
+        }
+        this.k = k;
+        this.randomState = seed;
+        grow();
+    }
+
+    // Add one value; NaN is ignored
+    public void update(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (count == 0) {
+            min = value;
+            max = value;
+        } else {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        count++;
+        append(0, value);
+        size++;
+        compress();
+    }
+
+    // Fold in another sketch built with the same k
+    public void merge(KllSketch other) {
+        if (other.k != k) {
+            throw new IllegalArgumentException("Cannot merge sketches with k " + k + " and " + other.k + ".");
+        }
+        if (other.count == 0) {
+            return;
+        }
+        while (levels.length < other.levels.length) {
+            grow();
+        }
+        for (int h = 0; h < other.levels.length; h++) {
+            for (int i = 0; i < other.levelSizes[h]; i++) {
+                append(h, other.levels[h][i]);
+            }
+        }
+        size += other.size;
+        min = count == 0 ? other.min : Math.min(min, other.min);
+        max = count == 0 ? other.max : Math.max(max, other.max);
+        count += other.count;
+        compress();
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    // Approximate fraction of the values that are <= value
+    public double getRank(double value) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long weight = 0;
+        for (int h = 0; h < levels.length; h++) {
+            for (int i = 0; i < levelSizes[h]; i++) {
+                if (levels[h][i] <= value) {
+                    weight += 1L << h;
+                }
+            }
+        }
+        return (double) weight / count;
+    }
+
+    // Approximate value at fraction q of the sorted values (0 = min, 0.5 = median, 1 = max)
+    public double getQuantile(double q) {
+        return getQuantiles(new double[]{q})[0];
+    }
+
+    public double[] getQuantiles(double[] fractions) {
+        double[] result = new double[fractions.length];
+        if (count == 0) {
+            Arrays.fill(result, Double.NaN);
+            return result;
+        }
+
+        // Every held value with its weight, as one sorted cumulative distribution: the levels
+        // are sorted separately and merged
+        double[][] sorted = new double[levels.length][];
+        for (int h = 0; h < levels.length; h++) {
+            sorted[h] = Arrays.copyOf(levels[h], levelSizes[h]);
+            Arrays.sort(sorted[h]);
+        }
+        int[] heads = new int[levels.length];
+        double[] values = new double[size];
+        long[] cumulative = new long[size];
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            int next = -1;
+            for (int h = 0; h < levels.length; h++) {
+                if (heads[h] < sorted[h].length && (next < 0 || sorted[h][heads[h]] < sorted[next][heads[next]])) {
+                    next = h;
+                }
+            }
+            values[i] = sorted[next][heads[next]++];
+            total += 1L << next;
+            cumulative[i] = total;
+        }
+
+        for (int f = 0; f < fractions.length; f++) {
+            double q = fractions[f];
+            if (!(q >= 0 && q <= 1)) {
+                throw new IllegalArgumentException("Quantile fraction must be between 0 and 1: " + q);
+            }
+            if (q == 0) {
+                result[f] = min;
+            } else if (q == 1) {
+                result[f] = max;
+            } else {
+                double target = q * total;
+                int low = 0;
+                int high = size - 1;
+                while (low < high) {
+                    int mid = (low + high) >>> 1;
+                    if (cumulative[mid] < target) {
+                        low = mid + 1;
+                    } else {
+                        high = mid;
+                    }
+                }
+                result[f] = values[low];
+            }
+        }
+        return result;
+    }
+
+    public byte[] toByteArray() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(k);
+            out.writeLong(count);
+            out.writeDouble(min);
+            out.writeDouble(max);
+            out.writeLong(randomState);
+            out.writeInt(levels.length);
+            for (int h = 0; h < levels.length; h++) {
+                out.writeInt(levelSizes[h]);
+                for (int i = 0; i < levelSizes[h]; i++) {
+                    out.writeDouble(levels[h][i]);
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    public static KllSketch fromByteArray(byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            if (in.readLong() != MAGIC) {
+                throw new IOException("Not a KLL sketch.");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported KLL sketch version " + version);
+            }
+            KllSketch sketch = new KllSketch(in.readInt(), 0);
+            sketch.count = in.readLong();
+            sketch.min = in.readDouble();
+            sketch.max = in.readDouble();
+            sketch.randomState = in.readLong();
+            int levelCount = in.readInt();
+            while (sketch.levels.length < levelCount) {
+                sketch.grow();
+            }
+            for (int h = 0; h < levelCount; h++) {
+                int levelSize = in.readInt();
+                for (int i = 0; i < levelSize; i++) {
+                    sketch.append(h, in.readDouble());
+                }
+                sketch.size += levelSize;
+            }
+            return sketch;
+        }
+    }
+
+    // Capacity of level h: k at the top level, shrinking by CAPACITY_RATIO per level below it
+    private int capacity(int h) {
+        int depth = levels.length - h - 1;
+        return (int) Math.ceil(Math.pow(CAPACITY_RATIO, depth) * k) + 1;
+    }
+
+    private void grow() {
+        int h = levels.length;
+        levels = Arrays.copyOf(levels, h + 1);
+        levelSizes = Arrays.copyOf(levelSizes, h + 1);
+        levels[h] = new double[8];
+        maxSize = 0;
+        for (int level = 0; level <= h; level++) {
+            maxSize += capacity(level);
+        }
+    }
+
+    private void append(int h, double value) {
+        if (levelSizes[h] == levels[h].length) {
+            levels[h] = Arrays.copyOf(levels[h], levels[h].length * 2);
+        }
+        levels[h][levelSizes[h]++] = value;
+    }
+
+    // Compact the lowest over-capacity level until the sketch fits again
+    private void compress() {
+        while (size >= maxSize) {
+            for (int h = 0; h < levels.length; h++) {
+                if (levelSizes[h] >= capacity(h)) {
+                    if (h + 1 >= levels.length) {
+                        grow();
+                    }
+                    compact(h);
+                    break;
+                }
+            }
+        }
+    }
+
+    // Sort level h and promote every other value to level h + 1, keeping one value back if the
+    // level has an odd size
+    private void compact(int h) {
+        double[] level = levels[h];
+        int levelSize = levelSizes[h];
+        Arrays.sort(level, 0, levelSize);
+        int kept = levelSize % 2;
+        int offset = kept + (nextRandomBit() ? 1 : 0);
+        for (int i = offset; i < levelSize; i += 2) {
+            append(h + 1, level[i]);
+        }
+        levelSizes[h] = kept; // With an odd size the smallest value stays behind at this level
+        size -= (levelSize - kept) / 2;
+    }
+
+    private boolean nextRandomBit() {
+        // SplitMix64 step
+        randomState += 0x9E3779B97F4A7C15L;
+        long z = randomState;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return ((z ^ (z >>> 31)) & 1) != 0;
+    }
+}
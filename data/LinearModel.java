@@ -0,0 +1,140 @@
+package data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// A fitted linear model together with the standardization it was trained under. Features are
+// scaled with (value - mean) / stdDev before the coefficients are applied (features with a zero
+// standard deviation contribute nothing), and the prediction is scaled back to target units.
+//
+// Saved models use a compact big-endian binary format:
+//   magic (long "JMLMODEL"), version (int), target name (UTF), feature count (int),
+//   per feature: name (UTF), mean (double), standard deviation (double),
+//   target mean (double), target standard deviation (double), coefficients (feature count + 1 doubles)
+public class LinearModel {
+    private static final long MAGIC = 0x4A4D4C4D4F44454CL; // "JMLMODEL"
+    private static final int VERSION = 1;
+
+    private final String targetName;
+    private final String[] featureNames;
+    private final double[] featureMeans;
+    private final double[] featureStdDevs;
+    private final double targetMean;
+    private final double targetStdDev;
+    private final double[] coefficients; // Intercept at index 0, feature j at index j + 1
+
+    public LinearModel(String targetName, String[] featureNames, double[] featureMeans, double[] featureStdDevs,
+            double targetMean, double targetStdDev, double[] coefficients) {
+        if (featureMeans.length != featureNames.length || featureStdDevs.length != featureNames.length
+                || coefficients.length != featureNames.length + 1) {
+            throw new IllegalArgumentException("Model arrays do not match " + featureNames.length + " features.");
+        }
+        this.targetName = targetName;
+        this.featureNames = featureNames.clone();
+        this.featureMeans = featureMeans.clone();
+        this.featureStdDevs = featureStdDevs.clone();
+        this.targetMean = targetMean;
+        this.targetStdDev = targetStdDev;
+        this.coefficients = coefficients.clone();
+    }
+
+    // Predict the target, in its original units, from raw feature values given in feature order
+    public double predict(double[] features) {
+        double standardized = coefficients[0];
+        for (int j = 0; j < featureNames.length; j++) {
+            if (featureStdDevs[j] != 0) {
+                standardized += coefficients[j + 1] * (features[j] - featureMeans[j]) / featureStdDevs[j];
+            }
+        }
+        return targetStdDev != 0 ? standardized * targetStdDev + targetMean : targetMean;
+    }
+
+    public void save(String filePath) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(Paths.get(filePath))))) {
+            out.writeLong(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(targetName);
+            out.writeInt(featureNames.length);
+            for (int j = 0; j < featureNames.length; j++) {
+                out.writeUTF(featureNames[j]);
+                out.writeDouble(featureMeans[j]);
+                out.writeDouble(featureStdDevs[j]);
+            }
+            out.writeDouble(targetMean);
+            out.writeDouble(targetStdDev);
+            for (double coefficient : coefficients) {
+                out.writeDouble(coefficient);
+            }
+        }
+    }
+
+    public static LinearModel load(String filePath) throws IOException {
+        Path path = Paths.get(filePath);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readLong() != MAGIC) {
+                throw new IOException("Not a linear model file: " + filePath);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported linear model version " + version + " in " + filePath);
+            }
+            String targetName = in.readUTF();
+            int features = in.readInt();
+            String[] featureNames = new String[features];
+            double[] featureMeans = new double[features];
+            double[] featureStdDevs = new double[features];
+            for (int j = 0; j < features; j++) {
+                featureNames[j] = in.readUTF();
+                featureMeans[j] = in.readDouble();
+                featureStdDevs[j] = in.readDouble();
+            }
+            double targetMean = in.readDouble();
+            double targetStdDev = in.readDouble();
+            double[] coefficients = new double[features + 1];
+            for (int j = 0; j <= features; j++) {
+                coefficients[j] = in.readDouble();
+            }
+            return new LinearModel(targetName, featureNames, featureMeans, featureStdDevs, targetMean, targetStdDev,
+                    coefficients);
+        }
+    }
+
+    public String getTargetName() {
+        return targetName;
+    }
+
+    public String[] getFeatureNames() {
+        return featureNames.clone();
+    }
+
+    public int getFeatureCount() {
+        return featureNames.length;
+    }
+
+    public double[] getFeatureMeans() {
+        return featureMeans.clone();
+    }
+
+    public double[] getFeatureStdDevs() {
+        return featureStdDevs.clone();
+    }
+
+    public double getTargetMean() {
+        return targetMean;
+    }
+
+    public double getTargetStdDev() {
+        return targetStdDev;
+    }
+
+    public double[] getCoefficients() {
+        return coefficients.clone();
+    }
+}
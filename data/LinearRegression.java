@@ -1,278 +1,297 @@
 package data;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.*;
+import java.util.stream.IntStream;
 
 public class LinearRegression {
     private static final int TRAINING_PERCENTAGE = 70;
     private static final int MAX_ITERATIONS = 2000;
     private static final double LEARNING_RATE = 0.05; // Adjust learning rate
     private static final double REGULARIZATION_PARAM = 0.05; // Adjust regularization parameter
+    private static final int CROSS_VALIDATION_FOLDS = 5;
+    private static final long CROSS_VALIDATION_SEED = 42;
+    private static final long SPLIT_SEED = 7;
+    private static final int GRADIENT_BLOCK_ROWS = 4096; // Fixed partition size, independent of core count
+
+    private static final String TARGET = "Surgery_type";
+    private static final String MODEL_FILE = "linear_regression.model";
+    private static final String IMPUTER_FILE = "linear_regression.imputer";
+
+    // How the coefficients are fitted
+    public enum Solver {
+        GRADIENT_DESCENT, // MAX_ITERATIONS full passes of batch gradient descent
+        NORMAL_EQUATIONS // One pass to build the ridge normal equations, then a direct solve
+    }
 
-    public static void run(String filePath) {
-        try {
-            List<Map<String, Double>> data = new ArrayList<>();
-            readData(filePath, data);
-            System.out.println("Total data size: " + data.size());
-
-            // Split data into training and testing sets
-            List<Map<String, Double>> trainData = new ArrayList<>();
-            List<Map<String, Double>> testData = new ArrayList<>();
-            splitData(data, trainData, testData);
-            System.out.println("Training data size: " + trainData.size());
-            System.out.println("Testing data size: " + testData.size());
-
-            // Normalize data
-            standardizeData(trainData);
-            standardizeData(testData);
-
-            // Train the linear regression model
-            Map<String, Double> coefficients = trainLinearRegression(trainData);
-
-            // Test the model and calculate regression metrics
-            calculateRegressionMetrics(coefficients, testData);
+    public static void run(DataTable table) {
+        run(table, Solver.GRADIENT_DESCENT);
+    }
 
+    public static void run(DataTable table, Solver solver) {
+        System.out.println("Headers: " + Arrays.toString(table.getHeaders())); // Debug print
+        // Keep every row with a target; missing feature values stay NaN until imputed below
+        DesignMatrix data = DesignMatrix.fromTableWithMissing(table, TARGET);
+        System.out.println("Total data size: " + data.getRowCount());
+
+        // Split the rows into training and testing sets; both stay in the one matrix
+        DataSplitter.Split split = splitData(data);
+        int[] trainRows = split.getTrainRows();
+        int[] testRows = split.getTestRows();
+        System.out.println("Training data size: " + trainRows.length);
+        System.out.println("Testing data size: " + testRows.length);
+
+        // Fill missing feature values with the training set's medians, in both sets
+        Imputer imputer = new Imputer(Imputer.Strategy.MEDIAN).fit(data, trainRows);
+        System.out.println("Imputed values: " + imputer.transform(data));
+
+        // Normalize both sets with the training set's statistics
+        StandardScaler scaler = StandardScaler.fit(data, trainRows);
+        scaler.transform(data);
+
+        // Train the linear regression model
+        double[] coefficients = trainLinearRegression(data, trainRows, solver);
+        System.out.println("Coefficients: " + getCoefficientMap(data, coefficients));
+
+        // Test the model and calculate regression metrics
+        calculateRegressionMetrics(coefficients, data, testRows);
+
+        // Keep the model so new data can be scored without retraining
+        int p = data.getFeatureCount();
+        double[] means = scaler.getMeans();
+        double[] stdDevs = scaler.getStdDevs();
+        LinearModel model = new LinearModel(TARGET, data.getFeatureNames(), Arrays.copyOf(means, p),
+                Arrays.copyOf(stdDevs, p), means[p], stdDevs[p], coefficients);
+        try {
+            model.save(MODEL_FILE);
+            imputer.save(IMPUTER_FILE);
+            System.out.println("Model saved to " + MODEL_FILE + " (imputation to " + IMPUTER_FILE + ")");
         } catch (IOException e) {
-            e.printStackTrace();
+            System.out.println("Could not save model: " + e.getMessage());
         }
     }
 
-    public static void readData(String filename, List<Map<String, Double>> data) throws IOException {
-        FileReader file = new FileReader(filename);
-        BufferedReader br = new BufferedReader(file);
-
-        String line;
-        boolean headerSkipped = false;
-        List<String> headers = new ArrayList<>();
-
-        while ((line = br.readLine()) != null) {
-            if (!headerSkipped) {
-                headerSkipped = true;
-                String[] headerValues = line.split(",");
-                for (String header : headerValues) {
-                    headers.add(header.trim());
-                }
-                System.out.println("Headers: " + headers); // Debug print
-                continue;
-            }
-
-            String[] values = line.split(",");
-            if (values.length >= headers.size()) {
-                Map<String, Double> entry = new HashMap<>();
-                boolean validEntry = true;
-                for (int i = 0; i < headers.size(); i++) {
-                    String header = headers.get(i);
-                    String value = values[i].trim();
-                    if (value.isEmpty() || value.equals("?")) {
-                        validEntry = false;
-                        break; // Skip this row
-                    }
-                    if (!header.equals("Surgery_type") && isNumeric(value)) {
-                        entry.put(header, Double.parseDouble(value));
-                    }
-                }
-                if (validEntry) {
-                    try {
-                        entry.put("Surgery_type", Double.parseDouble(values[headers.indexOf("Surgery_type")].trim()));
-                        data.add(entry);
-                    } catch (NumberFormatException e) {
-                        System.out
-                                .println("Invalid value for Surgery_type: " + values[headers.indexOf("Surgery_type")]);
-                        // Skip rows where Surgery_type is not numeric
-                    }
-                }
-            } else {
-                System.out.println("Incomplete data in row: " + line); // Debug print
-            }
+    // Cross-validated grid search over learning rates and regularization strengths
+    public static void tune(DataTable table) {
+        // Each fold imputes medians and standardizes with its own training rows' statistics
+        DesignMatrix data = DesignMatrix.fromTableWithMissing(table, TARGET);
+        double[] learningRates = { 0.01, 0.05, 0.1, 0.5 };
+        double[] regularizations = { 0.0, 0.05, 0.5, 5.0, 50.0 };
+        List<CrossValidation.Result> results = CrossValidation.gridSearch(data, CROSS_VALIDATION_FOLDS,
+                learningRates, regularizations, Imputer.Strategy.MEDIAN, defaultOptions(), CROSS_VALIDATION_SEED);
+
+        System.out.println(CROSS_VALIDATION_FOLDS + "-fold cross-validation, best configuration first:");
+        for (CrossValidation.Result result : results) {
+            System.out.println(result);
         }
+    }
 
-        br.close();
-        file.close();
+    // Seeded split of the rows, TRAINING_PERCENTAGE of each target value going to the training set
+    public static DataSplitter.Split splitData(DesignMatrix data) {
+        return DataSplitter.stratified(data.getY(), TRAINING_PERCENTAGE / 100.0, SPLIT_SEED);
+    }
 
-        System.out.println("Total data size after reading: " + data.size()); // Debug print
+    // Scale every feature and the target to zero mean and unit standard deviation, in place.
+    // Returns {means, standard deviations}, each with the features first and the target last.
+    public static double[][] standardizeData(DesignMatrix data) {
+        StandardScaler scaler = StandardScaler.fit(data);
+        scaler.transform(data);
+        return new double[][] { scaler.getMeans(), scaler.getStdDevs() };
     }
 
-    public static boolean isNumeric(String str) {
-        return str.matches("-?\\d+(\\.\\d+)?"); // Regex to check if the string is numeric
+    public static double[] trainLinearRegression(DesignMatrix trainData, Solver solver) {
+        return trainLinearRegression(trainData, null, solver);
     }
 
-    public static void splitData(List<Map<String, Double>> data, List<Map<String, Double>> trainData,
-            List<Map<String, Double>> testData) {
-        Random random = new Random();
-        for (Map<String, Double> entry : data) {
-            if (random.nextInt(100) < TRAINING_PERCENTAGE) {
-                trainData.add(entry);
-            } else {
-                testData.add(entry);
-            }
+    // Fit on only the given rows of the matrix (all rows when rows is null)
+    public static double[] trainLinearRegression(DesignMatrix trainData, int[] rows, Solver solver) {
+        if (solver == Solver.NORMAL_EQUATIONS) {
+            return RidgeSolver.solve(trainData, rows, REGULARIZATION_PARAM);
         }
-        System.out.println("Training data size: " + trainData.size());
-        System.out.println("Testing data size: " + testData.size());
+        int[] iterations = new int[1];
+        double[] coefficients = trainLinearRegression(trainData, rows,
+                defaultOptions().setListener((iteration, loss, gradientNorm, validationLoss, elapsedNanos) -> {
+                    iterations[0] = iteration + 1;
+                }));
+        System.out.println("Gradient descent iterations: " + iterations[0]);
+        return coefficients;
     }
 
-    public static void standardizeData(List<Map<String, Double>> data) {
-        if (data.isEmpty())
-            return;
-
-        Map<String, Double> means = new HashMap<>();
-        Map<String, Double> stdDevs = new HashMap<>();
+    // Batch gradient descent with ridge regularization and the default TrainingOptions
+    // (MAX_ITERATIONS, LEARNING_RATE and REGULARIZATION_PARAM)
+    public static double[] trainLinearRegression(DesignMatrix trainData) {
+        return trainLinearRegression(trainData, defaultOptions());
+    }
 
-        for (String key : data.get(0).keySet()) {
-            means.put(key, 0.0);
-            stdDevs.put(key, 0.0);
-        }
+    public static TrainingOptions defaultOptions() {
+        return new TrainingOptions().setMaxIterations(MAX_ITERATIONS).setLearningRate(LEARNING_RATE)
+                .setRegularization(REGULARIZATION_PARAM);
+    }
 
-        for (Map<String, Double> entry : data) {
-            for (Map.Entry<String, Double> feature : entry.entrySet()) {
-                String key = feature.getKey();
-                means.put(key, means.get(key) + feature.getValue());
-            }
-        }
+    // Batch gradient descent with ridge regularization. Returns the coefficient vector with the
+    // intercept at index 0 and feature j at index j + 1.
+    // Each iteration's gradient is summed over fixed blocks of GRADIENT_BLOCK_ROWS rows in parallel,
+    // each block into its own buffer, and the block sums are then added in block order. The result
+    // therefore depends only on the data, never on the number of cores or on thread scheduling.
+    public static double[] trainLinearRegression(DesignMatrix trainData, TrainingOptions options) {
+        return trainLinearRegression(trainData, null, options);
+    }
 
-        for (String key : means.keySet()) {
-            means.put(key, means.get(key) / data.size());
+    // Train on only the given rows of the matrix (all rows when rows is null), so that folds and
+    // splits can share one matrix instead of copying their rows
+    public static double[] trainLinearRegression(DesignMatrix trainData, int[] rows, TrainingOptions options) {
+        int n = rows != null ? rows.length : trainData.getRowCount();
+        if (n == 0) {
+            throw new IllegalArgumentException("Training data is empty.");
         }
-
-        for (Map<String, Double> entry : data) {
-            for (Map.Entry<String, Double> feature : entry.entrySet()) {
-                String key = feature.getKey();
-                stdDevs.put(key, stdDevs.get(key) + Math.pow(feature.getValue() - means.get(key), 2));
+        int p = trainData.getFeatureCount();
+        double[] x = trainData.getX();
+        double[] y = trainData.getY();
+        double learningRate = options.getLearningRate();
+        double regularization = options.getRegularization();
+        DesignMatrix validationData = options.getValidationData();
+        FeatureTransform transform = options.getTransform();
+        TrainingListener listener = options.getListener();
+
+        // Per block: gradient (p + 1 entries) followed by the sum of squared errors
+        int width = p + 2;
+        int blocks = (n + GRADIENT_BLOCK_ROWS - 1) / GRADIENT_BLOCK_ROWS;
+        double[] coefficients = new double[p + 1];
+        double[] gradient = new double[width];
+        double[] blockGradients = new double[blocks * width];
+        double[] bestCoefficients = validationData != null ? new double[p + 1] : null;
+        double bestValidationLoss = Double.POSITIVE_INFINITY;
+        int iterationsSinceBest = 0;
+        double previousLoss = Double.NaN;
+
+        for (int iteration = 0; iteration < options.getMaxIterations(); iteration++) {
+            long start = System.nanoTime();
+            if (blocks == 1) {
+                Arrays.fill(gradient, 0.0);
+                accumulateGradient(x, y, p, rows, transform, coefficients, 0, n, gradient, 0);
+            } else {
+                IntStream.range(0, blocks).parallel().forEach(block -> {
+                    int offset = block * width;
+                    Arrays.fill(blockGradients, offset, offset + width, 0.0);
+                    accumulateGradient(x, y, p, rows, transform, coefficients, block * GRADIENT_BLOCK_ROWS,
+                            Math.min(n, (block + 1) * GRADIENT_BLOCK_ROWS), blockGradients, offset);
+                });
+                Arrays.fill(gradient, 0.0);
+                for (int block = 0; block < blocks; block++) {
+                    for (int j = 0, offset = block * width; j < width; j++) {
+                        gradient[j] += blockGradients[offset + j];
+                    }
+                }
             }
-        }
 
-        for (String key : stdDevs.keySet()) {
-            stdDevs.put(key, Math.sqrt(stdDevs.get(key) / data.size()));
-        }
+            // Loss and gradient norm at the current coefficients, ridge term included
+            double penalty = 0;
+            double gradientNorm = gradient[0] * gradient[0];
+            for (int j = 1; j <= p; j++) {
+                penalty += coefficients[j] * coefficients[j];
+                double grad = gradient[j] + regularization * coefficients[j];
+                gradientNorm += grad * grad;
+            }
+            double loss = (gradient[p + 1] + regularization * penalty) / (2.0 * n);
+            gradientNorm = Math.sqrt(gradientNorm);
+
+            coefficients[0] -= learningRate * gradient[0] / n;
+            for (int j = 1; j <= p; j++) {
+                double coeff = coefficients[j] - learningRate * gradient[j] / n;
+                coeff -= learningRate * regularization * coeff / n; // Ridge regression regularization term
+                coefficients[j] = coeff;
+            }
 
-        for (Map<String, Double> entry : data) {
-            for (Map.Entry<String, Double> feature : entry.entrySet()) {
-                String key = feature.getKey();
-                double value = feature.getValue();
-                double mean = means.get(key);
-                double stdDev = stdDevs.get(key);
-                if (stdDev != 0) {
-                    entry.put(key, (value - mean) / stdDev);
+            double validationLoss = Double.NaN;
+            if (validationData != null) {
+                validationLoss = RegressionMetrics.compute(coefficients, validationData, null, transform).getMse();
+                if (validationLoss < bestValidationLoss) {
+                    bestValidationLoss = validationLoss;
+                    System.arraycopy(coefficients, 0, bestCoefficients, 0, p + 1);
+                    iterationsSinceBest = 0;
                 } else {
-                    entry.put(key, 0.0); // If standard deviation is zero
+                    iterationsSinceBest++;
                 }
             }
-        }
-    }
-
-    public static Map<String, Double> trainLinearRegression(List<Map<String, Double>> trainData) {
-        if (trainData.isEmpty()) {
-            throw new IllegalArgumentException("Training data is empty.");
-        }
-
-        Map<String, Double> coefficients = new HashMap<>();
-        coefficients.put("intercept", 0.0);
+            if (listener != null) {
+                listener.iterationCompleted(iteration, loss, gradientNorm, validationLoss, System.nanoTime() - start);
+            }
 
-        for (String key : trainData.get(0).keySet()) {
-            if (!key.equals("Surgery_type")) {
-                coefficients.put(key, 0.0);
+            if (options.getPatience() > 0 && iterationsSinceBest >= options.getPatience()) {
+                break;
+            }
+            if (gradientNorm / n < options.getGradientTolerance()) {
+                break;
             }
+            if (iteration > 0 && Math.abs(previousLoss - loss) <= options.getLossTolerance() * Math.abs(previousLoss)) {
+                break;
+            }
+            previousLoss = loss;
         }
 
-        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
-            Map<String, Double> gradient = new HashMap<>();
-            gradient.put("intercept", 0.0);
-
-            for (Map<String, Double> entry : trainData) {
-                double y = entry.get("Surgery_type");
-                double yPred = coefficients.get("intercept");
-                for (Map.Entry<String, Double> feature : entry.entrySet()) {
-                    String featureName = feature.getKey();
-                    if (!featureName.equals("Surgery_type")) {
-                        yPred += coefficients.get(featureName) * feature.getValue();
-                    }
-                }
+        return bestCoefficients != null && bestValidationLoss < Double.POSITIVE_INFINITY ? bestCoefficients
+                : coefficients;
+    }
 
-                for (Map.Entry<String, Double> feature : entry.entrySet()) {
-                    String featureName = feature.getKey();
-                    if (!featureName.equals("Surgery_type")) {
-                        double featureValue = feature.getValue();
-                        double featureGrad = gradient.getOrDefault(featureName, 0.0);
-                        gradient.put(featureName, featureGrad + (yPred - y) * featureValue);
-                    }
-                }
-                gradient.put("intercept", gradient.get("intercept") + (yPred - y));
+    // Add the squared-error gradient of rows [from, to) (positions in rows when it is not null) to
+    // out[outOffset .. outOffset + p] and their sum of squared errors to out[outOffset + p + 1].
+    // Rows are read through the transform when it is not null.
+    private static void accumulateGradient(double[] x, double[] y, int p, int[] rows, FeatureTransform transform,
+            double[] coefficients, int from, int to, double[] out, int outOffset) {
+        double[] transformed = transform != null ? new double[p] : null;
+        for (int i = from; i < to; i++) {
+            int row = rows != null ? rows[i] : i;
+            double[] features = x;
+            int offset = row * p;
+            if (transform != null) {
+                transform.features(x, offset, transformed);
+                features = transformed;
+                offset = 0;
             }
-
-            for (Map.Entry<String, Double> gradEntry : gradient.entrySet()) {
-                String featureName = gradEntry.getKey();
-                double grad = gradEntry.getValue();
-                double coeff = coefficients.get(featureName);
-                coeff -= LEARNING_RATE * grad / trainData.size();
-                if (!featureName.equals("intercept")) {
-                    coeff -= LEARNING_RATE * REGULARIZATION_PARAM * coeff / trainData.size(); // Ridge regression
-                                                                                              // regularization term
-                }
-                coefficients.put(featureName, coeff);
+            double yPred = coefficients[0];
+            for (int j = 0; j < p; j++) {
+                yPred += coefficients[j + 1] * features[offset + j];
+            }
+            double error = yPred - (transform != null ? transform.target(y[row]) : y[row]);
+            for (int j = 0; j < p; j++) {
+                out[outOffset + j + 1] += error * features[offset + j];
             }
+            out[outOffset] += error;
+            out[outOffset + p + 1] += error * error;
         }
+    }
 
-        return coefficients;
+    public static double meanSquaredError(double[] coefficients, DesignMatrix data) {
+        return RegressionMetrics.compute(coefficients, data, null).getMse();
     }
 
-    public static void calculateRegressionMetrics(Map<String, Double> coefficients,
-            List<Map<String, Double>> testData) {
-        if (testData.isEmpty()) {
-            System.out.println("Test data is empty.");
-            return;
+    // Name each coefficient: "intercept" followed by the feature names
+    public static Map<String, Double> getCoefficientMap(DesignMatrix data, double[] coefficients) {
+        Map<String, Double> coefficientMap = new LinkedHashMap<>();
+        coefficientMap.put("intercept", coefficients[0]);
+        for (int j = 0; j < data.getFeatureCount(); j++) {
+            coefficientMap.put(data.getFeatureName(j), coefficients[j + 1]);
         }
+        return coefficientMap;
+    }
 
-        double sumSquaredErrors = 0.0;
-        double sumAbsoluteErrors = 0.0;
-        double totalSumSquares = 0.0;
-        double sumY = 0.0;
-        double sumYPred = 0.0;
-        double sumYPredSquared = 0.0;
-        double sumYSquared = 0.0;
-        int correctPredictions = 0;
-        int totalPredictions = 0;
-
-        for (Map<String, Double> entry : testData) {
-            double y = entry.get("Surgery_type");
-            double yPred = coefficients.get("intercept");
-            for (Map.Entry<String, Double> feature : entry.entrySet()) {
-                if (!feature.getKey().equals("Surgery_type")) {
-                    yPred += coefficients.getOrDefault(feature.getKey(), 0.0) * feature.getValue();
-                }
-            }
-
-            double error = yPred - y;
-            sumSquaredErrors += error * error;
-            sumAbsoluteErrors += Math.abs(error);
-            sumY += y;
-            sumYPred += yPred;
-            sumYSquared += y * y;
-            sumYPredSquared += yPred * yPred;
-
-            totalPredictions++;
-            if (Math.abs(y - yPred) < 0.5) { // Assuming a threshold for correct prediction
-                correctPredictions++;
-            }
-        }
+    public static void calculateRegressionMetrics(double[] coefficients, DesignMatrix testData) {
+        calculateRegressionMetrics(coefficients, testData, null);
+    }
 
-        double meanY = sumY / testData.size();
-        for (Map<String, Double> entry : testData) {
-            double y = entry.get("Surgery_type");
-            totalSumSquares += (y - meanY) * (y - meanY);
+    // Metrics over the given test rows of the matrix (all rows when testRows is null)
+    public static void calculateRegressionMetrics(double[] coefficients, DesignMatrix data, int[] testRows) {
+        if ((testRows != null ? testRows.length : data.getRowCount()) == 0) {
+            System.out.println("Test data is empty.");
+            return;
         }
+        RegressionMetrics metrics = RegressionMetrics.compute(coefficients, data, testRows);
 
-        double r2 = 1 - (sumSquaredErrors / totalSumSquares);
-        double mse = sumSquaredErrors / testData.size();
-        double mae = sumAbsoluteErrors / testData.size();
-        double rmse = Math.sqrt(mse);
-        double accuracyPercentage = ((double) correctPredictions / totalPredictions) * 100 ;
-
-        System.out.println("R² Score: " + r2);
-        System.out.println("Mean Squared Error (MSE): " + mse);
-        System.out.println("Mean Absolute Error (MAE): " + mae);
-        System.out.println("Root Mean Squared Error (RMSE): " + rmse);
-        System.out.println("Accuracy Percentage: " + accuracyPercentage + "%");
+        System.out.println("R² Score: " + metrics.getR2());
+        System.out.println("Mean Squared Error (MSE): " + metrics.getMse());
+        System.out.println("Mean Absolute Error (MAE): " + metrics.getMae());
+        System.out.println("Root Mean Squared Error (RMSE): " + metrics.getRmse());
+        System.out.println("Accuracy Percentage: " + metrics.getAccuracyPercentage() + "%");
     }
 
 }
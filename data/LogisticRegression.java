@@ -0,0 +1,245 @@
+package data;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+// Ridge-penalized logistic regression for a binary (0/1) target, fitted by Newton's method, i.e.
+// iteratively reweighted least squares. Each iteration is one pass over the training rows that
+// accumulates the log-loss, its gradient X'(p - y) and Hessian X'WX (W = p(1 - p)); the small
+// (features + 1) x (features + 1) Newton system is then solved with RidgeSolver's Cholesky
+// factorization. This typically converges in well under 20 passes. A step that would increase
+// the loss is halved until it does not. Rows are accumulated in fixed blocks in parallel and the
+// block sums added in block order, so the result does not depend on the number of cores.
+// fit() takes its iteration limit, ridge strength, stopping tolerances and listener from
+// TrainingOptions (the learning rate, validation and transform settings do not apply).
+public class LogisticRegression {
+    private static final int TRAINING_PERCENTAGE = 70;
+    private static final int MAX_ITERATIONS = 50;
+    private static final int MAX_STEP_HALVINGS = 30;
+    private static final double REGULARIZATION_PARAM = 0.05;
+    private static final double STEP_TOLERANCE = 1e-8; // Largest coefficient change at convergence
+    private static final double DECISION_THRESHOLD = 0.5;
+    private static final int BLOCK_ROWS = 4096; // Fixed partition size, independent of core count
+    private static final long SPLIT_SEED = 7;
+
+    private static final String TARGET = "Patient_Status";
+
+    public static void run(DataTable table) {
+        // Keep every row with a target; missing feature values stay NaN until imputed below
+        DesignMatrix data = DesignMatrix.fromTableWithMissing(table, TARGET);
+        double[] labels = data.getY().clone();
+        for (double label : labels) {
+            if (label != 0 && label != 1) {
+                throw new IllegalArgumentException(TARGET + " must be 0 or 1, found " + label);
+            }
+        }
+        System.out.println("Total data size: " + data.getRowCount());
+
+        DataSplitter.Split split = DataSplitter.stratified(labels, TRAINING_PERCENTAGE / 100.0, SPLIT_SEED);
+        int[] trainRows = split.getTrainRows();
+        int[] testRows = split.getTestRows();
+        System.out.println("Training data size: " + trainRows.length);
+        System.out.println("Testing data size: " + testRows.length);
+
+        // Fill missing features with the training rows' medians, then standardize with their
+        // statistics (the labels were copied first)
+        new Imputer(Imputer.Strategy.MEDIAN).fit(data, trainRows).transform(data);
+        StandardScaler.fit(data, trainRows).transform(data);
+
+        int[] iterations = new int[1];
+        double[] finalLoss = new double[1];
+        TrainingOptions options = new TrainingOptions().setMaxIterations(MAX_ITERATIONS)
+                .setRegularization(REGULARIZATION_PARAM)
+                .setListener((iteration, loss, gradientNorm, validationLoss, elapsedNanos) -> {
+                    iterations[0] = iteration + 1;
+                    finalLoss[0] = loss;
+                });
+        double[] coefficients;
+        try {
+            coefficients = fit(data, labels, trainRows, options);
+        } catch (IllegalStateException e) {
+            System.out.println("Logistic regression failed: " + e.getMessage());
+            return;
+        }
+        System.out.println("Newton iterations: " + iterations[0] + ", training log-loss: " + finalLoss[0]);
+        System.out.println("Coefficients: " + LinearRegression.getCoefficientMap(data, coefficients));
+
+        double[] probabilities = predictProbabilities(coefficients, data, testRows);
+        double[] testLabels = new double[testRows.length];
+        for (int i = 0; i < testRows.length; i++) {
+            testLabels[i] = labels[testRows[i]];
+        }
+        ClassificationMetrics metrics = ClassificationMetrics.compute(probabilities, testLabels, DECISION_THRESHOLD);
+        System.out.println("Log-Loss: " + metrics.getLogLoss());
+        System.out.println("AUC: " + metrics.getAuc());
+        System.out.println("Accuracy: " + metrics.getAccuracy() * 100 + "%");
+        System.out.println("Confusion Matrix (threshold " + DECISION_THRESHOLD + "):");
+        System.out.println("              Predicted 0   Predicted 1");
+        System.out.printf("Actual 0   %14d%14d%n", metrics.getTrueNegatives(), metrics.getFalsePositives());
+        System.out.printf("Actual 1   %14d%14d%n", metrics.getFalseNegatives(), metrics.getTruePositives());
+    }
+
+    // Fit on the given rows of the matrix (all rows when rows is null) against 0/1 labels indexed
+    // like the matrix rows, minimizing the summed log-loss plus lambda / 2 * |b|^2 (the intercept
+    // is not penalized). Returns the coefficients with the intercept at index 0 and feature j at
+    // index j + 1.
+    public static double[] fit(DesignMatrix data, double[] labels, int[] rows, double lambda) {
+        return fit(data, labels, rows, new TrainingOptions().setMaxIterations(MAX_ITERATIONS).setRegularization(lambda));
+    }
+
+    // Fit with the options' maximum iterations, regularization (lambda) and stopping tolerances.
+    // Training stops at the first of: maxIterations Newton steps, a step changing no coefficient
+    // by more than STEP_TOLERANCE, a relative loss change below lossTolerance, a gradient norm
+    // (divided by the number of rows) below gradientTolerance, or no step size lowering the loss.
+    // The listener, if any, gets each iteration's mean penalized log-loss and gradient norm at the
+    // coefficients the iteration started from. Throws IllegalStateException when the Newton system
+    // is not numerically positive definite (e.g. constant features without regularization).
+    public static double[] fit(DesignMatrix data, double[] labels, int[] rows, TrainingOptions options) {
+        int n = rows != null ? rows.length : data.getRowCount();
+        if (n == 0) {
+            throw new IllegalArgumentException("Training data is empty.");
+        }
+        double lambda = options.getRegularization();
+        TrainingListener listener = options.getListener();
+        int m = data.getFeatureCount() + 1;
+        double[] coefficients = new double[m];
+        double[] candidate = new double[m];
+        double[] step = new double[m];
+        double[] sums = new double[m * m + m + 1]; // Hessian upper triangle, gradient, loss
+        double loss = accumulate(data, labels, rows, coefficients, lambda, sums);
+        for (int iteration = 0; iteration < options.getMaxIterations(); iteration++) {
+            long start = System.nanoTime();
+            double[] gradient = Arrays.copyOfRange(sums, m * m, m * m + m);
+            double gradientNorm = 0;
+            for (double value : gradient) {
+                gradientNorm += value * value;
+            }
+            gradientNorm = Math.sqrt(gradientNorm);
+            if (gradientNorm / n < options.getGradientTolerance()) {
+                break;
+            }
+            double[] newton = RidgeSolver.choleskySolve(Arrays.copyOf(sums, m * m), gradient, m);
+            if (newton == null) {
+                throw new IllegalStateException("Newton system is not positive definite at iteration "
+                        + (iteration + 1) + "; increase the regularization.");
+            }
+
+            // Take the Newton step, halving it while it increases the loss
+            double scale = 1;
+            double candidateLoss = Double.POSITIVE_INFINITY;
+            for (int halving = 0; halving <= MAX_STEP_HALVINGS; halving++, scale /= 2) {
+                for (int j = 0; j < m; j++) {
+                    step[j] = scale * newton[j];
+                    candidate[j] = coefficients[j] - step[j];
+                }
+                candidateLoss = accumulate(data, labels, rows, candidate, lambda, sums);
+                if (candidateLoss <= loss) {
+                    break;
+                }
+            }
+            if (listener != null) {
+                listener.iterationCompleted(iteration, loss / n, gradientNorm, Double.NaN, System.nanoTime() - start);
+            }
+            if (!(candidateLoss <= loss)) {
+                break; // No step decreases the loss any further
+            }
+            System.arraycopy(candidate, 0, coefficients, 0, m);
+            double previousLoss = loss;
+            loss = candidateLoss;
+
+            double largestStep = 0;
+            for (double value : step) {
+                largestStep = Math.max(largestStep, Math.abs(value));
+            }
+            if (largestStep < STEP_TOLERANCE
+                    || Math.abs(previousLoss - loss) <= options.getLossTolerance() * Math.abs(previousLoss)) {
+                break;
+            }
+        }
+        return coefficients;
+    }
+
+    // Penalized loss at the coefficients; fills sums with the upper triangle of the penalized
+    // Hessian (m * m entries), then the penalized gradient (m entries), then the loss
+    private static double accumulate(DesignMatrix data, double[] labels, int[] rows, double[] coefficients,
+            double lambda, double[] sums) {
+        int n = rows != null ? rows.length : data.getRowCount();
+        int m = coefficients.length;
+        int width = sums.length;
+        int blocks = (n + BLOCK_ROWS - 1) / BLOCK_ROWS;
+        double[] blockSums = new double[blocks * width];
+        IntStream.range(0, blocks).parallel().forEach(block -> accumulateBlock(data, labels, rows, coefficients,
+                block * BLOCK_ROWS, Math.min(n, (block + 1) * BLOCK_ROWS), blockSums, block * width));
+        Arrays.fill(sums, 0.0);
+        for (int block = 0; block < blocks; block++) {
+            for (int k = 0, offset = block * width; k < width; k++) {
+                sums[k] += blockSums[offset + k];
+            }
+        }
+        double penalty = 0;
+        for (int j = 1; j < m; j++) {
+            sums[j * m + j] += lambda;
+            sums[m * m + j] += lambda * coefficients[j];
+            penalty += coefficients[j] * coefficients[j];
+        }
+        sums[width - 1] += lambda / 2 * penalty;
+        return sums[width - 1];
+    }
+
+    private static void accumulateBlock(DesignMatrix data, double[] labels, int[] rows, double[] coefficients,
+            int from, int to, double[] out, int outOffset) {
+        int p = data.getFeatureCount();
+        int m = p + 1;
+        double[] x = data.getX();
+        int gradientOffset = outOffset + m * m;
+        double[] features = new double[m];
+        features[0] = 1; // Intercept
+        for (int i = from; i < to; i++) {
+            int row = rows != null ? rows[i] : i;
+            System.arraycopy(x, row * p, features, 1, p);
+            double eta = 0;
+            for (int j = 0; j < m; j++) {
+                eta += coefficients[j] * features[j];
+            }
+            double probability = sigmoid(eta);
+            double weight = probability * (1 - probability);
+            double residual = probability - labels[row];
+            for (int j = 0; j < m; j++) {
+                double xj = features[j];
+                out[gradientOffset + j] += residual * xj;
+                double weighted = weight * xj;
+                for (int k = j, base = outOffset + j * m; k < m; k++) {
+                    out[base + k] += weighted * features[k];
+                }
+            }
+            // log(1 + e^eta) - y * eta, evaluated without overflow
+            double softplus = eta > 0 ? eta + Math.log1p(Math.exp(-eta)) : Math.log1p(Math.exp(eta));
+            out[gradientOffset + m] += softplus - labels[row] * eta;
+        }
+    }
+
+    // Probability of label 1 for the given rows of the matrix (all rows when rows is null)
+    public static double[] predictProbabilities(double[] coefficients, DesignMatrix data, int[] rows) {
+        int n = rows != null ? rows.length : data.getRowCount();
+        int p = data.getFeatureCount();
+        double[] x = data.getX();
+        double[] probabilities = new double[n];
+        for (int i = 0; i < n; i++) {
+            int row = rows != null ? rows[i] : i;
+            double eta = coefficients[0];
+            for (int j = 0, offset = row * p; j < p; j++) {
+                eta += coefficients[j + 1] * x[offset + j];
+            }
+            probabilities[i] = sigmoid(eta);
+        }
+        return probabilities;
+    }
+
+    static double sigmoid(double eta) {
+        if (eta >= 0) {
+            return 1 / (1 + Math.exp(-eta));
+        }
+        double e = Math.exp(eta);
+        return e / (1 + e);
+    }
+}
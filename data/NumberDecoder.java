@@ -0,0 +1,119 @@
+package data;
+
+import java.nio.ByteBuffer;
+
+// Decodes decimal numbers straight from the bytes of a buffer. Plain decimals with at most
+// 2^53 as mantissa and a power-of-ten exponent within [-22, 22] are converted exactly with
+// a single multiplication or division (every such power of ten is representable as a double);
+// anything longer falls back to Double.parseDouble on a reused scratch buffer.
+// One decoder per thread: the decoded value is left in the value field.
+final class NumberDecoder {
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    double value;
+    private char[] scratch = new char[32];
+
+    // Decode the bytes in [from, to); returns false if they are not a number
+    boolean decode(ByteBuffer buffer, int from, int to) {
+        if (from >= to) {
+            return false;
+        }
+        int pos = from;
+        boolean negative = false;
+        byte b = buffer.get(pos);
+        if (b == '-' || b == '+') {
+            negative = b == '-';
+            pos++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        int digits = 0;
+        while (pos < to && (b = buffer.get(pos)) >= '0' && b <= '9') {
+            if (significantDigits < 19) {
+                mantissa = mantissa * 10 + (b - '0');
+                if (mantissa != 0) {
+                    significantDigits++;
+                }
+            } else {
+                exponent++; // Digit dropped, the fast path is no longer exact
+                significantDigits++;
+            }
+            digits++;
+            pos++;
+        }
+        if (pos < to && buffer.get(pos) == '.') {
+            pos++;
+            while (pos < to && (b = buffer.get(pos)) >= '0' && b <= '9') {
+                if (significantDigits < 19) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    exponent--;
+                    if (mantissa != 0) {
+                        significantDigits++;
+                    }
+                } else {
+                    significantDigits++;
+                }
+                digits++;
+                pos++;
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+        if (pos < to && ((b = buffer.get(pos)) == 'e' || b == 'E')) {
+            pos++;
+            boolean negativeExponent = false;
+            if (pos < to && ((b = buffer.get(pos)) == '-' || b == '+')) {
+                negativeExponent = b == '-';
+                pos++;
+            }
+            int explicitExponent = 0;
+            int exponentDigits = 0;
+            while (pos < to && (b = buffer.get(pos)) >= '0' && b <= '9') {
+                if (explicitExponent < 100000) {
+                    explicitExponent = explicitExponent * 10 + (b - '0');
+                }
+                exponentDigits++;
+                pos++;
+            }
+            if (exponentDigits == 0) {
+                return false;
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+        if (pos != to) {
+            return false;
+        }
+
+        if (significantDigits <= 19 && mantissa <= MAX_EXACT_MANTISSA && exponent >= -22 && exponent <= 22) {
+            double result = mantissa;
+            result = exponent >= 0 ? result * POWERS_OF_TEN[exponent] : result / POWERS_OF_TEN[-exponent];
+            value = negative ? -result : result;
+            return true;
+        }
+        return decodeSlow(buffer, from, to);
+    }
+
+    // Exact but allocating conversion for the rare cells the fast path cannot handle
+    private boolean decodeSlow(ByteBuffer buffer, int from, int to) {
+        int length = to - from;
+        if (scratch.length < length) {
+            scratch = new char[Math.max(length, scratch.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            scratch[i] = (char) buffer.get(from + i);
+        }
+        try {
+            value = Double.parseDouble(new String(scratch, 0, length));
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
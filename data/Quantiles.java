@@ -0,0 +1,171 @@
+package data;
+
+import java.util.Arrays;
+
+// Exact quantiles of a double[] without sorting it. The values are copied to a scratch array and
+// only the requested order statistics are put in place with a multi-target introselect: each
+// round partitions around a median-of-three pivot (three-way, so runs of equal values finish at
+// once) and recurses only into the sides that still contain requested ranks. Expected time is
+// O(n) per call however many quantiles are asked for at once, falling back to a sort of the
+// remaining range if partitioning degrades. The input is never modified; values must not be NaN.
+public class Quantiles {
+    private static final int INSERTION_SORT_SIZE = 16;
+
+    // The k-th smallest value (0-based) for each requested rank, in the order requested
+    public static double[] orderStatistics(double[] values, int[] ranks) {
+        int n = values.length;
+        for (int rank : ranks) {
+            if (rank < 0 || rank >= n) {
+                throw new IllegalArgumentException("Rank " + rank + " is out of range for " + n + " values.");
+            }
+        }
+        int[] targets = ranks.clone();
+        Arrays.sort(targets);
+        double[] scratch = values.clone();
+        int depthLimit = 2 * (32 - Integer.numberOfLeadingZeros(Math.max(n, 1)));
+        select(scratch, 0, n, targets, 0, targets.length, depthLimit);
+
+        double[] result = new double[ranks.length];
+        for (int i = 0; i < ranks.length; i++) {
+            result[i] = scratch[ranks[i]];
+        }
+        return result;
+    }
+
+    // Median, averaging the two middle values for an even count; 0 for no values
+    public static double median(double[] values) {
+        return quartiles(values)[1];
+    }
+
+    // Q1, median and Q3 as DescriptiveStatistics has always reported them: the quartiles are the
+    // medians of the lower and upper halves, leaving the middle value out of both halves for an
+    // odd count. An empty half has quartile 0.
+    public static double[] quartiles(double[] values) {
+        int n = values.length;
+        int half = n / 2;
+        return halfMedians(values, half, n % 2 == 0 ? half : half + 1);
+    }
+
+    // Tukey's hinges, as JFreeChart's box plots use them: like quartiles, but for an odd count
+    // the middle value belongs to both halves
+    public static double[] hinges(double[] values) {
+        int n = values.length;
+        int lowerSize = n % 2 == 0 ? n / 2 : n / 2 + 1;
+        return halfMedians(values, lowerSize, n / 2);
+    }
+
+    // Linearly interpolated percentiles (p in [0, 1], position p * (n - 1) in sorted order)
+    public static double[] percentiles(double[] values, double[] probabilities) {
+        int n = values.length;
+        if (n == 0) {
+            throw new IllegalArgumentException("No values to take percentiles of.");
+        }
+        int[] ranks = new int[probabilities.length * 2];
+        for (int i = 0; i < probabilities.length; i++) {
+            double p = probabilities[i];
+            if (!(p >= 0 && p <= 1)) {
+                throw new IllegalArgumentException("Percentile must be between 0 and 1: " + p);
+            }
+            double position = p * (n - 1);
+            ranks[2 * i] = (int) Math.floor(position);
+            ranks[2 * i + 1] = (int) Math.ceil(position);
+        }
+        double[] bounds = orderStatistics(values, ranks);
+        double[] result = new double[probabilities.length];
+        for (int i = 0; i < probabilities.length; i++) {
+            double fraction = probabilities[i] * (n - 1) - ranks[2 * i];
+            result[i] = bounds[2 * i] + fraction * (bounds[2 * i + 1] - bounds[2 * i]);
+        }
+        return result;
+    }
+
+    // {median of the lowest lowerSize values, overall median, median of the highest upperStart..n}
+    private static double[] halfMedians(double[] values, int lowerSize, int upperStart) {
+        int n = values.length;
+        if (n == 0) {
+            return new double[]{0, 0, 0};
+        }
+        int upperSize = n - upperStart;
+        int[] ranks = {
+                Math.max(lowerSize - 1, 0) / 2, lowerSize / 2,
+                (n - 1) / 2, n / 2,
+                Math.min(upperStart + Math.max(upperSize - 1, 0) / 2, n - 1), Math.min(upperStart + upperSize / 2, n - 1)
+        };
+        double[] statistics = orderStatistics(values, ranks);
+        return new double[]{
+                lowerSize == 0 ? 0 : (statistics[0] + statistics[1]) / 2,
+                (statistics[2] + statistics[3]) / 2,
+                upperSize == 0 ? 0 : (statistics[4] + statistics[5]) / 2
+        };
+    }
+
+    // Put the values with ranks targets[from, to) in their sorted positions within a[lo, hi)
+    private static void select(double[] a, int lo, int hi, int[] targets, int from, int to, int depth) {
+        while (from < to) {
+            if (hi - lo <= INSERTION_SORT_SIZE) {
+                insertionSort(a, lo, hi);
+                return;
+            }
+            if (depth-- == 0) {
+                Arrays.sort(a, lo, hi);
+                return;
+            }
+
+            // Three-way partition: a[lo, lt) < pivot, a[lt, gt) == pivot, a[gt, hi) > pivot
+            double pivot = medianOfThree(a[lo], a[(lo + hi) >>> 1], a[hi - 1]);
+            int lt = lo;
+            int gt = hi;
+            int i = lo;
+            while (i < gt) {
+                double value = a[i];
+                if (value < pivot) {
+                    a[i++] = a[lt];
+                    a[lt++] = value;
+                } else if (value > pivot) {
+                    a[i] = a[--gt];
+                    a[gt] = value;
+                } else {
+                    i++;
+                }
+            }
+
+            int leftEnd = from;
+            while (leftEnd < to && targets[leftEnd] < lt) {
+                leftEnd++;
+            }
+            int rightStart = leftEnd;
+            while (rightStart < to && targets[rightStart] < gt) {
+                rightStart++;
+            }
+            // Recurse into the side with fewer targets and loop on the other
+            if (leftEnd - from < to - rightStart) {
+                select(a, lo, lt, targets, from, leftEnd, depth);
+                lo = gt;
+                from = rightStart;
+            } else {
+                select(a, gt, hi, targets, rightStart, to, depth);
+                hi = lt;
+                to = leftEnd;
+            }
+        }
+    }
+
+    private static double medianOfThree(double a, double b, double c) {
+        if (a < b) {
+            return b < c ? b : Math.max(a, c);
+        }
+        return a < c ? a : Math.max(b, c);
+    }
+
+    private static void insertionSort(double[] a, int lo, int hi) {
+        for (int i = lo + 1; i < hi; i++) {
+            double value = a[i];
+            int j = i - 1;
+            while (j >= lo && a[j] > value) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = value;
+        }
+    }
+}
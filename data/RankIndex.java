@@ -0,0 +1,74 @@
+package data;
+
+import java.util.Arrays;
+
+// Ranks of one column of values, computed with a single sort so rank correlations can reuse them
+// for every pair the column appears in. Two forms are kept:
+//   ranks     1-based ranks with ties given their average rank, as Spearman's rho uses
+//   minRanks  0-based position of the first value equal to each value in sorted order; equal
+//             values share a minRank, so these sort and compare exactly like the values
+public class RankIndex {
+    private final double[] ranks;
+    private final int[] minRanks;
+
+    private RankIndex(double[] ranks, int[] minRanks) {
+        this.ranks = ranks;
+        this.minRanks = minRanks;
+    }
+
+    public static RankIndex of(double[] values) {
+        return of(values, null);
+    }
+
+    // Ranks of values[rows[0]], values[rows[1]], ... (all values when rows is null)
+    public static RankIndex of(double[] values, int[] rows) {
+        int n = rows != null ? rows.length : values.length;
+        double[] sorted = new double[n];
+        for (int r = 0; r < n; r++) {
+            sorted[r] = values[rows != null ? rows[r] : r];
+        }
+        double[] selected = sorted.clone();
+        Arrays.sort(sorted);
+
+        double[] ranks = new double[n];
+        int[] minRanks = new int[n];
+        for (int r = 0; r < n; r++) {
+            int first = boundary(sorted, selected[r], false);
+            int last = boundary(sorted, selected[r], true) - 1;
+            minRanks[r] = first;
+            ranks[r] = (first + last) / 2.0 + 1;
+        }
+        return new RankIndex(ranks, minRanks);
+    }
+
+    // First position holding value (or, with after set, the first position past it) in a sorted
+    // array; binary searched so large groups of ties stay O(log n) per value
+    private static int boundary(double[] sorted, double value, boolean after) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int order = Double.compare(sorted[mid], value);
+            if (order < 0 || (after && order == 0)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public int size() {
+        return ranks.length;
+    }
+
+    // Average ranks; callers must not modify the array
+    public double[] getRanks() {
+        return ranks;
+    }
+
+    // Tie-sharing 0-based ranks; callers must not modify the array
+    public int[] getMinRanks() {
+        return minRanks;
+    }
+}
@@ -0,0 +1,118 @@
+package data;
+
+// Test-set quality of a linear model's coefficients, as reported by
+// LinearRegression.calculateRegressionMetrics
+public class RegressionMetrics {
+    private static final double CORRECT_PREDICTION_THRESHOLD = 0.5;
+
+    private final double r2;
+    private final double mse;
+    private final double mae;
+    private final double accuracyPercentage;
+
+    public RegressionMetrics(double r2, double mse, double mae, double accuracyPercentage) {
+        this.r2 = r2;
+        this.mse = mse;
+        this.mae = mae;
+        this.accuracyPercentage = accuracyPercentage;
+    }
+
+    // Evaluate coefficients (intercept at index 0) on the given rows of data, or all rows when rows is null
+    public static RegressionMetrics compute(double[] coefficients, DesignMatrix data, int[] rows) {
+        return compute(coefficients, data, rows, null);
+    }
+
+    // Evaluate on the given rows read through the transform (as stored when transform is null)
+    public static RegressionMetrics compute(double[] coefficients, DesignMatrix data, int[] rows,
+            FeatureTransform transform) {
+        int n = rows != null ? rows.length : data.getRowCount();
+        if (n == 0) {
+            return new RegressionMetrics(Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+        }
+        int p = data.getFeatureCount();
+        double[] x = data.getX();
+        double[] y = data.getY();
+        double[] transformed = transform != null ? new double[p] : null;
+
+        double sumSquaredErrors = 0.0;
+        double sumAbsoluteErrors = 0.0;
+        double sumY = 0.0;
+        int correctPredictions = 0;
+        for (int i = 0; i < n; i++) {
+            int row = rows != null ? rows[i] : i;
+            double[] features = x;
+            int offset = row * p;
+            if (transform != null) {
+                transform.features(x, offset, transformed);
+                features = transformed;
+                offset = 0;
+            }
+            double yPred = coefficients[0];
+            for (int j = 0; j < p; j++) {
+                yPred += coefficients[j + 1] * features[offset + j];
+            }
+
+            double target = transform != null ? transform.target(y[row]) : y[row];
+            double error = yPred - target;
+            sumSquaredErrors += error * error;
+            sumAbsoluteErrors += Math.abs(error);
+            sumY += target;
+            if (Math.abs(error) < CORRECT_PREDICTION_THRESHOLD) { // Assuming a threshold for correct prediction
+                correctPredictions++;
+            }
+        }
+
+        double meanY = sumY / n;
+        double totalSumSquares = 0.0;
+        for (int i = 0; i < n; i++) {
+            int row = rows != null ? rows[i] : i;
+            double target = transform != null ? transform.target(y[row]) : y[row];
+            totalSumSquares += (target - meanY) * (target - meanY);
+        }
+
+        return new RegressionMetrics(1 - (sumSquaredErrors / totalSumSquares), sumSquaredErrors / n,
+                sumAbsoluteErrors / n, ((double) correctPredictions / n) * 100);
+    }
+
+    // Element-wise mean of several metrics, e.g. over cross-validation folds
+    public static RegressionMetrics mean(RegressionMetrics[] metrics) {
+        double r2 = 0;
+        double mse = 0;
+        double mae = 0;
+        double accuracy = 0;
+        for (RegressionMetrics m : metrics) {
+            r2 += m.r2;
+            mse += m.mse;
+            mae += m.mae;
+            accuracy += m.accuracyPercentage;
+        }
+        int k = metrics.length;
+        return new RegressionMetrics(r2 / k, mse / k, mae / k, accuracy / k);
+    }
+
+    public double getR2() {
+        return r2;
+    }
+
+    public double getMse() {
+        return mse;
+    }
+
+    public double getMae() {
+        return mae;
+    }
+
+    public double getRmse() {
+        return Math.sqrt(mse);
+    }
+
+    public double getAccuracyPercentage() {
+        return accuracyPercentage;
+    }
+
+    @Override
+    public String toString() {
+        return "R²=" + r2 + ", MSE=" + mse + ", MAE=" + mae + ", RMSE=" + getRmse() + ", Accuracy="
+                + accuracyPercentage + "%";
+    }
+}
@@ -0,0 +1,182 @@
+package data;
+
+import java.util.Arrays;
+
+// Direct solver for ridge regression. Minimizes sum((b0 + x.b - y)^2) + lambda * |b|^2 (the
+// intercept b0 is not penalized), the objective LinearRegression's gradient descent converges to,
+// by solving the normal equations (A'A + lambda * I) c = A'y with A = [1 X] and c = [b0 b].
+// A'A and A'y are accumulated in one pass over the data and the small system is solved with a
+// Cholesky factorization. If the system is too ill-conditioned for that, the solver falls back
+// to a QR factorization of the data itself (built row by row with Givens rotations), which
+// avoids squaring the condition number.
+public class RidgeSolver {
+    // Cholesky is rejected when the squared pivot ratio suggests fewer than ~4 reliable digits
+    private static final double MIN_RECIPROCAL_CONDITION = 1e-12;
+    // Relative size below which an R diagonal entry is treated as zero (rank deficient column)
+    private static final double RANK_TOLERANCE = 1e-12;
+
+    // Returns the coefficient vector with the intercept at index 0 and feature j at index j + 1
+    public static double[] solve(DesignMatrix data, double lambda) {
+        return solve(data, null, lambda);
+    }
+
+    // Solve using only the given rows of the matrix (all rows when rows is null)
+    public static double[] solve(DesignMatrix data, int[] rows, double lambda) {
+        int n = rows != null ? rows.length : data.getRowCount();
+        if (n == 0) {
+            throw new IllegalArgumentException("Training data is empty.");
+        }
+        int p = data.getFeatureCount();
+        int m = p + 1;
+        double[] x = data.getX();
+        double[] y = data.getY();
+
+        // Upper triangle of A'A and A'y, in one pass
+        double[] gram = new double[m * m];
+        double[] rhs = new double[m];
+        for (int r = 0; r < n; r++) {
+            int row = rows != null ? rows[r] : r;
+            int offset = row * p;
+            double target = y[row];
+            gram[0] += 1;
+            rhs[0] += target;
+            for (int i = 0; i < p; i++) {
+                double xi = x[offset + i];
+                gram[i + 1] += xi; // Row 0: intercept column against feature i
+                rhs[i + 1] += xi * target;
+                int base = (i + 1) * m;
+                for (int j = i; j < p; j++) {
+                    gram[base + j + 1] += xi * x[offset + j];
+                }
+            }
+        }
+        for (int i = 1; i < m; i++) {
+            gram[i * m + i] += lambda;
+        }
+
+        double[] coefficients = choleskySolve(gram, rhs, m);
+        if (coefficients == null) {
+            coefficients = qrSolve(data, rows, lambda);
+        }
+        return coefficients;
+    }
+
+    // Solve using the upper triangle of the symmetric matrix a (overwritten with the factor).
+    // Returns null when the matrix is not numerically positive definite.
+    static double[] choleskySolve(double[] a, double[] b, int m) {
+        double maxPivot = 0;
+        double minPivot = Double.POSITIVE_INFINITY;
+        // Factor a = U'U, storing U in the upper triangle
+        for (int j = 0; j < m; j++) {
+            double diagonal = a[j * m + j];
+            for (int k = 0; k < j; k++) {
+                diagonal -= a[k * m + j] * a[k * m + j];
+            }
+            if (!(diagonal > 0)) {
+                return null;
+            }
+            double pivot = Math.sqrt(diagonal);
+            a[j * m + j] = pivot;
+            maxPivot = Math.max(maxPivot, pivot);
+            minPivot = Math.min(minPivot, pivot);
+            for (int i = j + 1; i < m; i++) {
+                double value = a[j * m + i];
+                for (int k = 0; k < j; k++) {
+                    value -= a[k * m + j] * a[k * m + i];
+                }
+                a[j * m + i] = value / pivot;
+            }
+        }
+        if ((minPivot / maxPivot) * (minPivot / maxPivot) < MIN_RECIPROCAL_CONDITION) {
+            return null;
+        }
+
+        // Forward substitution U'z = b, then back substitution Uc = z
+        double[] solution = b.clone();
+        for (int i = 0; i < m; i++) {
+            double value = solution[i];
+            for (int k = 0; k < i; k++) {
+                value -= a[k * m + i] * solution[k];
+            }
+            solution[i] = value / a[i * m + i];
+        }
+        for (int i = m - 1; i >= 0; i--) {
+            double value = solution[i];
+            for (int k = i + 1; k < m; k++) {
+                value -= a[i * m + k] * solution[k];
+            }
+            solution[i] = value / a[i * m + i];
+        }
+        return solution;
+    }
+
+    // Least squares on the rows of [1 X | y] stacked on sqrt(lambda) * I rows for the features.
+    // Each row is rotated into an m x m upper triangular R (with Q'y alongside), so only O(m^2)
+    // memory is needed.
+    static double[] qrSolve(DesignMatrix data, int[] rows, double lambda) {
+        int n = rows != null ? rows.length : data.getRowCount();
+        int p = data.getFeatureCount();
+        int m = p + 1;
+        double[] x = data.getX();
+        double[] y = data.getY();
+        double[] r = new double[m * m];
+        double[] qty = new double[m];
+        double[] row = new double[m];
+
+        for (int i = 0; i < n; i++) {
+            int index = rows != null ? rows[i] : i;
+            row[0] = 1;
+            System.arraycopy(x, index * p, row, 1, p);
+            rotateIn(r, qty, row, y[index], m);
+        }
+        double penalty = Math.sqrt(lambda);
+        for (int j = 1; j < m && penalty > 0; j++) {
+            Arrays.fill(row, 0);
+            row[j] = penalty;
+            rotateIn(r, qty, row, 0, m);
+        }
+
+        double maxDiagonal = 0;
+        for (int i = 0; i < m; i++) {
+            maxDiagonal = Math.max(maxDiagonal, Math.abs(r[i * m + i]));
+        }
+        double[] solution = new double[m];
+        for (int i = m - 1; i >= 0; i--) {
+            double diagonal = r[i * m + i];
+            if (Math.abs(diagonal) <= RANK_TOLERANCE * maxDiagonal) {
+                solution[i] = 0; // Column carries no independent information
+                continue;
+            }
+            double value = qty[i];
+            for (int k = i + 1; k < m; k++) {
+                value -= r[i * m + k] * solution[k];
+            }
+            solution[i] = value / diagonal;
+        }
+        return solution;
+    }
+
+    // Fold one row (and its target) into R and Q'y with Givens rotations; row is overwritten
+    private static void rotateIn(double[] r, double[] qty, double[] row, double target, int m) {
+        for (int k = 0; k < m; k++) {
+            double value = row[k];
+            if (value == 0) {
+                continue;
+            }
+            double diagonal = r[k * m + k];
+            double radius = Math.hypot(diagonal, value);
+            double c = diagonal / radius;
+            double s = value / radius;
+            r[k * m + k] = radius;
+            for (int j = k + 1; j < m; j++) {
+                double rj = r[k * m + j];
+                double vj = row[j];
+                r[k * m + j] = c * rj + s * vj;
+                row[j] = c * vj - s * rj;
+            }
+            double q = qty[k];
+            qty[k] = c * q + s * target;
+            target = c * target - s * q;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package data;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+// Scales a fixed number of variables to zero mean and unit standard deviation. The means and
+// population variances are learned in one Welford pass, either from a DesignMatrix (the features
+// followed by the target, optionally restricted to the training rows) or row by row with add(),
+// e.g. from a CsvBatchReader, and partial scalers can be merged. The learned statistics are then
+// applied unchanged to training, test and scoring rows, so all are scaled alike. Variables with a
+// zero standard deviation carry no information and are scaled to 0.
+public class StandardScaler {
+    private static final int FIT_BLOCK_ROWS = 4096; // Fixed partition size, independent of core count
+
+    private final int width;
+    private long count;
+    private final double[] means;
+    private final double[] sumSquares; // Sum of squared deviations from the mean
+
+    public StandardScaler(int width) {
+        this.width = width;
+        this.means = new double[width];
+        this.sumSquares = new double[width];
+    }
+
+    // Fit the features and the target (last) of every row of the matrix
+    public static StandardScaler fit(DesignMatrix data) {
+        return fit(data, null);
+    }
+
+    // Fit the features and the target (last) of the given rows of the matrix (all rows when rows
+    // is null). Fixed blocks of rows are fitted in parallel and merged in block order, so the
+    // result does not depend on the number of cores.
+    public static StandardScaler fit(DesignMatrix data, int[] rows) {
+        return fit(data, rows, null);
+    }
+
+    // Fit as if every NaN feature value were replaced by fills[feature] (no replacement when fills
+    // is null), e.g. the fill values of an Imputer fitted on the same rows
+    public static StandardScaler fit(DesignMatrix data, int[] rows, double[] fills) {
+        int n = rows != null ? rows.length : data.getRowCount();
+        int p = data.getFeatureCount();
+        int blocks = (n + FIT_BLOCK_ROWS - 1) / FIT_BLOCK_ROWS;
+        StandardScaler[] partials = new StandardScaler[blocks];
+        IntStream.range(0, blocks).parallel().forEach(block -> {
+            StandardScaler partial = new StandardScaler(p + 1);
+            partial.addRows(data, rows, fills, block * FIT_BLOCK_ROWS, Math.min(n, (block + 1) * FIT_BLOCK_ROWS));
+            partials[block] = partial;
+        });
+        StandardScaler scaler = new StandardScaler(p + 1);
+        for (StandardScaler partial : partials) {
+            scaler.merge(partial);
+        }
+        return scaler;
+    }
+
+    private void addRows(DesignMatrix data, int[] rows, double[] fills, int from, int to) {
+        int p = width - 1;
+        double[] x = data.getX();
+        double[] y = data.getY();
+        for (int i = from; i < to; i++) {
+            int row = rows != null ? rows[i] : i;
+            count++;
+            double inverseCount = 1.0 / count;
+            for (int j = 0, offset = row * p; j < p; j++) {
+                double value = x[offset + j];
+                if (fills != null && Double.isNaN(value)) {
+                    value = fills[j];
+                }
+                double delta = value - means[j];
+                means[j] += delta * inverseCount;
+                sumSquares[j] += delta * (value - means[j]);
+            }
+            double delta = y[row] - means[p];
+            means[p] += delta * inverseCount;
+            sumSquares[p] += delta * (y[row] - means[p]);
+        }
+    }
+
+    // Add one row of getWidth() values starting at offset
+    public void add(double[] values, int offset) {
+        count++;
+        double inverseCount = 1.0 / count;
+        for (int j = 0; j < width; j++) {
+            double value = values[offset + j];
+            double delta = value - means[j];
+            means[j] += delta * inverseCount;
+            sumSquares[j] += delta * (value - means[j]);
+        }
+    }
+
+    // Combine another scaler's rows into this one (Chan et al.'s pairwise update)
+    public void merge(StandardScaler other) {
+        if (other.width != width) {
+            throw new IllegalArgumentException("Cannot merge scalers of " + width + " and " + other.width
+                    + " variables.");
+        }
+        if (other.count == 0) {
+            return;
+        }
+        long total = count + other.count;
+        double weight = (double) other.count / total;
+        double crossWeight = (double) count * other.count / total;
+        for (int j = 0; j < width; j++) {
+            double delta = other.means[j] - means[j];
+            means[j] += delta * weight;
+            sumSquares[j] += other.sumSquares[j] + delta * delta * crossWeight;
+        }
+        count = total;
+    }
+
+    // Scale the features and the target of every row of the matrix in place
+    public void transform(DesignMatrix data) {
+        int p = data.getFeatureCount();
+        if (p + 1 != width) {
+            throw new IllegalArgumentException("Scaler of " + width + " variables cannot scale " + p
+                    + " features and a target.");
+        }
+        double[] inverseStdDevs = getInverseStdDevs();
+        double[] x = data.getX();
+        int n = data.getRowCount();
+        IntStream.range(0, (n + FIT_BLOCK_ROWS - 1) / FIT_BLOCK_ROWS).parallel().forEach(block -> {
+            int end = Math.min(n, (block + 1) * FIT_BLOCK_ROWS);
+            for (int row = block * FIT_BLOCK_ROWS; row < end; row++) {
+                for (int j = 0, offset = row * p; j < p; j++) {
+                    x[offset + j] = (x[offset + j] - means[j]) * inverseStdDevs[j];
+                }
+            }
+        });
+        double[] y = data.getY();
+        for (int row = 0; row < n; row++) {
+            y[row] = (y[row] - means[p]) * inverseStdDevs[p];
+        }
+    }
+
+    // Scale, in place, rows consecutive rows of getWidth() values starting at offset (e.g. a
+    // CsvBatchReader batch). Missing (NaN) values stay NaN.
+    public void transform(double[] values, int offset, int rows) {
+        double[] inverseStdDevs = getInverseStdDevs();
+        for (int row = 0; row < rows; row++, offset += width) {
+            for (int j = 0; j < width; j++) {
+                values[offset + j] = (values[offset + j] - means[j]) * inverseStdDevs[j];
+            }
+        }
+    }
+
+    // 1 / standard deviation, or 0 for a constant variable
+    public double[] getInverseStdDevs() {
+        double[] inverse = new double[width];
+        for (int j = 0; j < width; j++) {
+            double stdDev = getStdDev(j);
+            inverse[j] = stdDev != 0 ? 1.0 / stdDev : 0.0;
+        }
+        return inverse;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean(int j) {
+        return means[j];
+    }
+
+    // Population standard deviation
+    public double getStdDev(int j) {
+        return count > 0 ? Math.sqrt(sumSquares[j] / count) : 0.0;
+    }
+
+    public double[] getMeans() {
+        return means.clone();
+    }
+
+    public double[] getStdDevs() {
+        double[] stdDevs = new double[width];
+        for (int j = 0; j < width; j++) {
+            stdDevs[j] = getStdDev(j);
+        }
+        return stdDevs;
+    }
+
+    @Override
+    public String toString() {
+        return "StandardScaler[count=" + count + ", means=" + Arrays.toString(means) + ", stdDevs="
+                + Arrays.toString(getStdDevs()) + "]";
+    }
+}
@@ -0,0 +1,179 @@
+package data;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+// Trains a ridge linear regression over a CSV file that does not have to fit in memory. The file
+// is read with a CsvBatchReader, so heap use is bounded by the batch size:
+//   pass 1:      a StandardScaler learns the means and standard deviations of every column
+//   each epoch:  one more pass, scaling each batch in place and updating the coefficients after
+//                every mini-batch with SGD or Adam
+// Features are every column except the target; rows with a missing value are skipped, as in
+// DesignMatrix.fromTable. Batches are visited in file order. Progress is reported to an optional
+// TrainingListener once per epoch: the iteration is the epoch, the loss is the epoch's training
+// mean squared error on standardized values, and the gradient norm and validation loss are NaN.
+public class StreamingRegressionTrainer {
+
+    public enum Optimizer {
+        SGD, ADAM
+    }
+
+    private static final double BETA1 = 0.9;
+    private static final double BETA2 = 0.999;
+    private static final double EPSILON = 1e-8;
+
+    private final String targetName;
+    private final int batchSize;
+    private final int epochs;
+    private final double learningRate;
+    private final double regularization;
+    private final Optimizer optimizer;
+    private TrainingListener listener;
+
+    public StreamingRegressionTrainer(String targetName, int batchSize, int epochs, double learningRate,
+            double regularization, Optimizer optimizer) {
+        if (batchSize <= 0 || epochs <= 0) {
+            throw new IllegalArgumentException("Batch size and epochs must be positive.");
+        }
+        this.targetName = targetName;
+        this.batchSize = batchSize;
+        this.epochs = epochs;
+        this.learningRate = learningRate;
+        this.regularization = regularization;
+        this.optimizer = optimizer;
+    }
+
+    public StreamingRegressionTrainer setListener(TrainingListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    public static void main(String[] args) {
+        String filePath = args.length > 0 ? args[0] : "BRCA.csv";
+        try {
+            StreamingRegressionTrainer trainer = new StreamingRegressionTrainer("Surgery_type", 1024, 20, 0.01,
+                    0.05, Optimizer.ADAM).setListener((epoch, loss, gradientNorm, validationLoss, elapsedNanos) ->
+                            System.out.println("Epoch " + (epoch + 1) + " training MSE: " + loss));
+            LinearModel model = trainer.train(filePath);
+            System.out.println("Features: " + Arrays.toString(model.getFeatureNames()));
+            System.out.println("Coefficients: " + Arrays.toString(model.getCoefficients()));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public LinearModel train(String filePath) throws IOException {
+        try (CsvBatchReader reader = new CsvBatchReader(filePath, batchSize)) {
+            int columns = reader.getColumnCount();
+            int target = reader.columnIndex(targetName);
+            String[] headers = reader.getHeaders();
+            String[] featureNames = new String[columns - 1];
+            int[] featureColumns = new int[columns - 1];
+            for (int column = 0, j = 0; column < columns; column++) {
+                if (column != target) {
+                    featureColumns[j] = column;
+                    featureNames[j++] = headers[column];
+                }
+            }
+            int p = featureColumns.length;
+
+            // Pass 1: running statistics of every column over the complete rows
+            StandardScaler scaler = new StandardScaler(columns);
+            int rows;
+            while ((rows = reader.next()) > 0) {
+                double[] values = reader.values();
+                for (int row = 0; row < rows; row++) {
+                    int offset = row * columns;
+                    if (isComplete(values, offset, columns)) {
+                        scaler.add(values, offset);
+                    }
+                }
+            }
+            long count = scaler.getCount();
+            if (count == 0) {
+                throw new IllegalArgumentException("Training data is empty.");
+            }
+
+            // Epochs of mini-batch updates on standardized values
+            double[] coefficients = new double[p + 1];
+            double[] gradient = new double[p + 1];
+            double[] standardized = new double[p];
+            double[] firstMoment = new double[p + 1];
+            double[] secondMoment = new double[p + 1];
+            long step = 0;
+            for (int epoch = 0; epoch < epochs; epoch++) {
+                long start = System.nanoTime();
+                reader.rewind();
+                double sumSquaredErrors = 0;
+                while ((rows = reader.next()) > 0) {
+                    double[] values = reader.values();
+                    scaler.transform(values, 0, rows);
+                    Arrays.fill(gradient, 0.0);
+                    int used = 0;
+                    for (int row = 0; row < rows; row++) {
+                        int offset = row * columns;
+                        if (!isComplete(values, offset, columns)) {
+                            continue;
+                        }
+                        used++;
+                        double yPred = coefficients[0];
+                        for (int j = 0; j < p; j++) {
+                            standardized[j] = values[offset + featureColumns[j]];
+                            yPred += coefficients[j + 1] * standardized[j];
+                        }
+                        double y = values[offset + target];
+                        double error = yPred - y;
+                        sumSquaredErrors += error * error;
+                        gradient[0] += error;
+                        for (int j = 0; j < p; j++) {
+                            gradient[j + 1] += error * standardized[j];
+                        }
+                    }
+                    if (used == 0) {
+                        continue;
+                    }
+
+                    // Mean batch gradient plus the ridge term of the full-data objective
+                    step++;
+                    for (int j = 0; j <= p; j++) {
+                        double grad = gradient[j] / used;
+                        if (j > 0) {
+                            grad += regularization * coefficients[j] / count;
+                        }
+                        if (optimizer == Optimizer.ADAM) {
+                            firstMoment[j] = BETA1 * firstMoment[j] + (1 - BETA1) * grad;
+                            secondMoment[j] = BETA2 * secondMoment[j] + (1 - BETA2) * grad * grad;
+                            double mHat = firstMoment[j] / (1 - Math.pow(BETA1, step));
+                            double vHat = secondMoment[j] / (1 - Math.pow(BETA2, step));
+                            coefficients[j] -= learningRate * mHat / (Math.sqrt(vHat) + EPSILON);
+                        } else {
+                            coefficients[j] -= learningRate * grad;
+                        }
+                    }
+                }
+                if (listener != null) {
+                    listener.iterationCompleted(epoch, sumSquaredErrors / count, Double.NaN, Double.NaN,
+                            System.nanoTime() - start);
+                }
+            }
+
+            double[] featureMeans = new double[p];
+            double[] featureStdDevs = new double[p];
+            for (int j = 0; j < p; j++) {
+                featureMeans[j] = scaler.getMean(featureColumns[j]);
+                featureStdDevs[j] = scaler.getStdDev(featureColumns[j]);
+            }
+            return new LinearModel(targetName, featureNames, featureMeans, featureStdDevs, scaler.getMean(target),
+                    scaler.getStdDev(target), coefficients);
+        }
+    }
+
+    private static boolean isComplete(double[] values, int offset, int columns) {
+        for (int column = 0; column < columns; column++) {
+            if (Double.isNaN(values[offset + column])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,316 @@
+package data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// Binary snapshot of a parsed DataTable, stored next to its CSV file as <file>.tblcache so that
+// later runs can skip the text parse. All numbers are little-endian and every block starts on
+// an 8-byte boundary:
+//
+//   magic (8 bytes "JMLTBL\0\0"), version (int), column count (int), row count (int), padding (int)
+//   source size (long), source mtime in ms (long), source content hash (long)
+//   per column: type (byte, 0 = INT, 1 = DOUBLE), name length (int), UTF-8 name bytes
+//   padding to 8 bytes
+//   per column: null bitmap ((rows + 63) / 64 longs), values (rows ints or doubles), padding to 8 bytes
+//
+// A snapshot is used when the CSV still has the recorded size and mtime. If only the mtime changed
+// (the file was touched or copied) the content hash decides, and a matching snapshot is reused
+// with its recorded mtime updated, so later runs take the size and mtime check again.
+public class TableCache {
+    private static final String SUFFIX = ".tblcache";
+    private static final long MAGIC = 0x00004C42544C4D4AL; // "JMLTBL\0\0" read little-endian
+    private static final int VERSION = 1;
+    private static final int MAX_MAPPING = 1 << 30;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    // Load the table from its snapshot when it is still valid, otherwise parse the CSV and write one
+    public static DataTable load(String filePath) throws IOException {
+        Path source = Paths.get(filePath);
+        Path cache = cachePath(source);
+        long size = Files.size(source);
+        long modified = Files.getLastModifiedTime(source).toMillis();
+
+        if (Files.exists(cache)) {
+            try {
+                DataTable table = read(cache, source, size, modified);
+                if (table != null) {
+                    return table;
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Ignoring unreadable table cache " + cache + ": " + e.getMessage());
+            }
+        }
+
+        DataTable table = CsvParser.parse(filePath);
+        try {
+            write(table, cache, size, modified, contentHash(source));
+        } catch (IOException e) {
+            System.err.println("Could not write table cache " + cache + ": " + e.getMessage());
+        }
+        return table;
+    }
+
+    public static Path cachePath(Path source) {
+        return source.resolveSibling(source.getFileName() + SUFFIX);
+    }
+
+    // Returns null when the snapshot does not belong to the current version of the source
+    private static DataTable read(Path cache, Path source, long size, long modified) throws IOException {
+        DataTable table;
+        boolean touched;
+        try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+            long cacheSize = channel.size();
+            if (cacheSize < 48) {
+                return null;
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(cacheSize, MAX_MAPPING));
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getLong(0) != MAGIC || header.getInt(8) != VERSION) {
+                return null;
+            }
+            int columnCount = header.getInt(12);
+            int rows = header.getInt(16);
+            if (header.getLong(24) != size) {
+                return null;
+            }
+            touched = header.getLong(32) != modified;
+            if (touched && header.getLong(40) != contentHash(source)) {
+                return null;
+            }
+
+            String[] headers = new String[columnCount];
+            DataTable.ColumnType[] types = new DataTable.ColumnType[columnCount];
+            int position = 48;
+            for (int column = 0; column < columnCount; column++) {
+                types[column] = header.get(position) == 0 ? DataTable.ColumnType.INT : DataTable.ColumnType.DOUBLE;
+                int nameLength = header.getInt(position + 1);
+                byte[] name = new byte[nameLength];
+                header.get(position + 5, name);
+                headers[column] = new String(name, StandardCharsets.UTF_8);
+                position += 5 + nameLength;
+            }
+
+            long offset = align(position);
+            Object[] columns = new Object[columnCount];
+            long[][] bitmaps = new long[columnCount][];
+            for (int column = 0; column < columnCount; column++) {
+                long[] bitmap = new long[(rows + 63) >>> 6];
+                readLongs(channel, offset, bitmap);
+                bitmaps[column] = bitmap;
+                offset += 8L * bitmap.length;
+                if (types[column] == DataTable.ColumnType.INT) {
+                    int[] ints = new int[rows];
+                    readInts(channel, offset, ints);
+                    columns[column] = ints;
+                    offset = align(offset + 4L * rows);
+                } else {
+                    double[] doubles = new double[rows];
+                    readDoubles(channel, offset, doubles);
+                    columns[column] = doubles;
+                    offset += 8L * rows;
+                }
+            }
+            if (offset != cacheSize) {
+                throw new IOException("Unexpected cache size " + cacheSize + ", expected " + offset);
+            }
+            table = new DataTable(headers, types, columns, bitmaps, rows);
+        }
+        if (touched) {
+            try {
+                writeModified(cache, modified);
+            } catch (IOException e) {
+                System.err.println("Could not update table cache " + cache + ": " + e.getMessage());
+            }
+        }
+        return table;
+    }
+
+    // Record a new source mtime in place of the old one (header offset 32)
+    private static void writeModified(Path cache, long modified) throws IOException {
+        try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(0, modified);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, 32 + buffer.position());
+            }
+        }
+    }
+
+    // Bulk-copy the mapped blocks into the heap arrays the analyses work on
+    private static void readLongs(FileChannel channel, long offset, long[] target) throws IOException {
+        for (int done = 0; done < target.length;) {
+            int count = Math.min(target.length - done, MAX_MAPPING / 8);
+            map(channel, offset + 8L * done, 8L * count).asLongBuffer().get(target, done, count);
+            done += count;
+        }
+    }
+
+    private static void readInts(FileChannel channel, long offset, int[] target) throws IOException {
+        for (int done = 0; done < target.length;) {
+            int count = Math.min(target.length - done, MAX_MAPPING / 4);
+            map(channel, offset + 4L * done, 4L * count).asIntBuffer().get(target, done, count);
+            done += count;
+        }
+    }
+
+    private static void readDoubles(FileChannel channel, long offset, double[] target) throws IOException {
+        for (int done = 0; done < target.length;) {
+            int count = Math.min(target.length - done, MAX_MAPPING / 8);
+            map(channel, offset + 8L * done, 8L * count).asDoubleBuffer().get(target, done, count);
+            done += count;
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, long offset, long length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // Write to a temporary file first so a concurrent reader never maps a half-written snapshot
+    static void write(DataTable table, Path cache, long size, long modified, long hash) throws IOException {
+        Path temporary = cache.resolveSibling(cache.getFileName() + ".tmp");
+        int columnCount = table.getColumnCount();
+        int rows = table.getRowCount();
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putLong(MAGIC).putInt(VERSION).putInt(columnCount).putInt(rows).putInt(0);
+            buffer.putLong(size).putLong(modified).putLong(hash);
+            long written = 0;
+            for (int column = 0; column < columnCount; column++) {
+                byte[] name = table.getHeader(column).getBytes(StandardCharsets.UTF_8);
+                written += ensureRoom(channel, buffer, 5 + name.length);
+                buffer.put(table.getType(column) == DataTable.ColumnType.INT ? (byte) 0 : (byte) 1);
+                buffer.putInt(name.length).put(name);
+            }
+            written += pad(channel, buffer, written);
+
+            for (int column = 0; column < columnCount; column++) {
+                written += writeLongs(channel, buffer, table.nullBitmap(column));
+                if (table.getType(column) == DataTable.ColumnType.INT) {
+                    written += writeInts(channel, buffer, table.getIntColumn(column));
+                    written += pad(channel, buffer, written);
+                } else {
+                    written += writeDoubles(channel, buffer, table.getDoubleColumn(column));
+                }
+            }
+            flush(channel, buffer);
+        }
+        Files.move(temporary, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Bulk-copy an array through the write buffer; returns the number of bytes flushed
+    private static long writeLongs(FileChannel channel, ByteBuffer buffer, long[] values) throws IOException {
+        long flushed = 0;
+        for (int done = 0; done < values.length;) {
+            flushed += ensureRoom(channel, buffer, 8);
+            int count = Math.min(values.length - done, buffer.remaining() / 8);
+            buffer.asLongBuffer().put(values, done, count);
+            buffer.position(buffer.position() + 8 * count);
+            done += count;
+        }
+        return flushed;
+    }
+
+    private static long writeInts(FileChannel channel, ByteBuffer buffer, int[] values) throws IOException {
+        long flushed = 0;
+        for (int done = 0; done < values.length;) {
+            flushed += ensureRoom(channel, buffer, 4);
+            int count = Math.min(values.length - done, buffer.remaining() / 4);
+            buffer.asIntBuffer().put(values, done, count);
+            buffer.position(buffer.position() + 4 * count);
+            done += count;
+        }
+        return flushed;
+    }
+
+    private static long writeDoubles(FileChannel channel, ByteBuffer buffer, double[] values) throws IOException {
+        long flushed = 0;
+        for (int done = 0; done < values.length;) {
+            flushed += ensureRoom(channel, buffer, 8);
+            int count = Math.min(values.length - done, buffer.remaining() / 8);
+            buffer.asDoubleBuffer().put(values, done, count);
+            buffer.position(buffer.position() + 8 * count);
+            done += count;
+        }
+        return flushed;
+    }
+
+    // Flush the buffer if fewer than bytes remain; returns the number of bytes flushed
+    private static int ensureRoom(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return 0;
+        }
+        if (bytes > buffer.capacity()) {
+            throw new IOException("Cache entry of " + bytes + " bytes does not fit the write buffer.");
+        }
+        return flush(channel, buffer);
+    }
+
+    private static int flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        int bytes = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        return bytes;
+    }
+
+    // Zero-pad so the next block starts on an 8-byte boundary; flushed is the byte count already on disk
+    private static int pad(FileChannel channel, ByteBuffer buffer, long flushed) throws IOException {
+        int padding = (int) (align(flushed + buffer.position()) - (flushed + buffer.position()));
+        int written = ensureRoom(channel, buffer, padding);
+        for (int i = 0; i < padding; i++) {
+            buffer.put((byte) 0);
+        }
+        return written;
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    // 64-bit hash of the whole file, read through memory mappings eight bytes at a time
+    static long contentHash(Path source) throws IOException {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long hash = 0x9E3779B97F4A7C15L ^ size;
+            for (long position = 0; position < size; position += MAX_MAPPING) {
+                int length = (int) Math.min(size - position, MAX_MAPPING);
+                ByteBuffer buffer = map(channel, position, length);
+                int i = 0;
+                for (; i + 8 <= length; i += 8) {
+                    hash = mix(hash, buffer.getLong(i));
+                }
+                long tail = 0;
+                for (int shift = 0; i < length; i++, shift += 8) {
+                    tail |= (buffer.get(i) & 0xFFL) << shift;
+                }
+                hash = mix(hash, tail);
+            }
+            return finish(hash);
+        }
+    }
+
+    private static long mix(long hash, long value) {
+        value *= 0xC2B2AE3D27D4EB4FL;
+        value = Long.rotateLeft(value, 31) * 0x9E3779B97F4A7C15L;
+        return Long.rotateLeft(hash ^ value, 27) * 5 + 0x52DCE729;
+    }
+
+    private static long finish(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,10 @@
+package data;
+
+// Receives per-iteration telemetry from training (see each trainer for what an iteration is)
+public interface TrainingListener {
+    // loss is the regularized training loss at the coefficients the iteration started from,
+    // validationLoss is the validation mean squared error after the update (NaN without a
+    // validation set) and elapsedNanos is the wall time spent in the iteration
+    void iterationCompleted(int iteration, double loss, double gradientNorm, double validationLoss,
+            long elapsedNanos);
+}
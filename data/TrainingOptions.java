@@ -0,0 +1,100 @@
+package data;
+
+// Settings for LinearRegression's gradient descent (LogisticRegression.fit uses the iteration
+// limit, regularization, tolerances and listener for its Newton steps). Training stops at the first of:
+//   - maxIterations iterations
+//   - a relative change in training loss below lossTolerance between two iterations
+//   - a gradient norm (divided by the number of rows) below gradientTolerance
+//   - patience iterations without improving the best validation loss, when a validation set is
+//     given; the coefficients with the best validation loss are then returned
+// A tolerance or patience of 0 disables that rule. With a FeatureTransform, the training rows and
+// the validation data are read through it, so they can stay unscaled.
+public class TrainingOptions {
+    private int maxIterations = 2000;
+    private double learningRate = 0.05;
+    private double regularization = 0.05;
+    private double lossTolerance = 1e-10;
+    private double gradientTolerance = 0;
+    private int patience = 0;
+    private DesignMatrix validationData;
+    private TrainingListener listener;
+    private FeatureTransform transform;
+
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    public TrainingOptions setMaxIterations(int maxIterations) {
+        this.maxIterations = maxIterations;
+        return this;
+    }
+
+    public double getLearningRate() {
+        return learningRate;
+    }
+
+    public TrainingOptions setLearningRate(double learningRate) {
+        this.learningRate = learningRate;
+        return this;
+    }
+
+    public double getRegularization() {
+        return regularization;
+    }
+
+    public TrainingOptions setRegularization(double regularization) {
+        this.regularization = regularization;
+        return this;
+    }
+
+    public double getLossTolerance() {
+        return lossTolerance;
+    }
+
+    public TrainingOptions setLossTolerance(double lossTolerance) {
+        this.lossTolerance = lossTolerance;
+        return this;
+    }
+
+    public double getGradientTolerance() {
+        return gradientTolerance;
+    }
+
+    public TrainingOptions setGradientTolerance(double gradientTolerance) {
+        this.gradientTolerance = gradientTolerance;
+        return this;
+    }
+
+    public int getPatience() {
+        return patience;
+    }
+
+    public DesignMatrix getValidationData() {
+        return validationData;
+    }
+
+    // Stop after patience iterations without a better loss on validationData
+    public TrainingOptions setValidation(DesignMatrix validationData, int patience) {
+        this.validationData = validationData;
+        this.patience = patience;
+        return this;
+    }
+
+    public TrainingListener getListener() {
+        return listener;
+    }
+
+    public TrainingOptions setListener(TrainingListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    public FeatureTransform getTransform() {
+        return transform;
+    }
+
+    public TrainingOptions setTransform(FeatureTransform transform) {
+        this.transform = transform;
+        return this;
+    }
+}